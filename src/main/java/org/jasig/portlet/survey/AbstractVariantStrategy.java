@@ -0,0 +1,53 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Base class of variant strategies that derives the fallback chain from the variant name by dropping one
+ * underscore-separated segment at a time, so fr_CA falls back to fr and then the default text.
+ *
+ * @since 1.0
+ */
+public abstract class AbstractVariantStrategy implements IVariantStrategy {
+    public static final char VARIANT_SEPARATOR = '_';
+
+    /**
+     * @see org.jasig.portlet.survey.IVariantStrategy#getVariantChain()
+     */
+    @Override
+    public List<String> getVariantChain() {
+        String variant = StringUtils.trimToEmpty(getVariantName());
+        if (variant.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> chain = new ArrayList<>();
+        while (!variant.isEmpty()) {
+            chain.add(variant);
+            int end = variant.lastIndexOf(VARIANT_SEPARATOR);
+            variant = end < 0 ? "" : variant.substring(0, end);
+        }
+        return chain;
+    }
+}
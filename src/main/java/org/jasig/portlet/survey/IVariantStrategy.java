@@ -18,6 +18,8 @@
  */
 package org.jasig.portlet.survey;
 
+import java.util.List;
+
 /**
  * Interface that defines how to get the variant name/key. Implementations should use their own process for determining
  * which variant to use. Strategies might include returning the name of a group, the language version, dept, etc.
@@ -27,4 +29,12 @@ package org.jasig.portlet.survey;
  */
 public interface IVariantStrategy {
     public String getVariantName();
+
+    /**
+     * Variants to read text from, most specific first (e.g. fr_CA, fr). Text of the first variant in the chain that
+     * has any is used; the default text is read when none of them has any, so the chain need not end with it.
+     * @return non-null list of variant names
+     * @see AbstractVariantStrategy
+     */
+    public List<String> getVariantChain();
 }
@@ -23,7 +23,7 @@ package org.jasig.portlet.survey;
  * @author chasegawa
  * @since 1.0
  */
-public class NullVariantStrategy implements IVariantStrategy {
+public class NullVariantStrategy extends AbstractVariantStrategy {
     /**
      * Always return null
      * @see org.jasig.portlet.survey.IVariantStrategy#getVariantName()
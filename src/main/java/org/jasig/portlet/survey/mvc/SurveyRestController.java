@@ -21,17 +21,31 @@ package org.jasig.portlet.survey.mvc;
 
 import java.io.IOException;
 import java.security.Principal;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
+import org.jasig.portlet.survey.PublishedState;
 import org.jasig.portlet.survey.mvc.service.ISurveyDataService;
 import org.jasig.portlet.survey.service.dto.*;
+import org.jasig.portlet.survey.service.idempotency.IdempotencyKeyStore;
+import org.jasig.portlet.survey.service.importer.CsvResponseImportReader;
+import org.jasig.portlet.survey.service.importer.IResponseImportReader;
+import org.jasig.portlet.survey.service.importer.JsonLinesResponseImportReader;
+import org.jasig.portlet.survey.service.importer.ResponseImportService;
 import org.jasig.portlet.survey.service.report.ISurveyReportGenerator;
 import org.jasig.portlet.survey.service.report.ISurveyReportMapper;
+import org.jasig.portlet.survey.service.survey.SurveyVersion;
+import org.jasig.portlet.survey.service.writebehind.ResponseWriteBehindService;
 import org.jsondoc.core.annotation.Api;
 import org.jsondoc.core.annotation.ApiBodyObject;
 import org.jsondoc.core.annotation.ApiMethod;
@@ -40,6 +54,8 @@ import org.jsondoc.core.annotation.ApiResponseObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -62,6 +78,15 @@ public class SurveyRestController {
     @Autowired
     private ISurveyReportMapper reportMapper;
 
+    @Autowired
+    private ResponseWriteBehindService responseWriteBehind;
+
+    @Autowired
+    private IdempotencyKeyStore idempotencyKeys;
+
+    @Autowired
+    private ResponseImportService responseImport;
+
     @Resource(name="viewOtherUsersResponseRoles")
     private List<String> viewOtherUsersResponseRoles;
 
@@ -126,15 +151,55 @@ public class SurveyRestController {
     /**
      * Search for all surveys
      * <p>
+     * The survey resources below carry an ETag and Last-Modified; a request whose If-None-Match (or, lacking one,
+     * If-Modified-Since) matches is answered with 304 (Not Modified) before any survey is loaded.
+     * <p>
      * Security:  Requires SURVEY_USER.
      */
     @PreAuthorize("hasRole('SURVEY_USER')")
     @ApiMethod(description = "Fetch all surveys", responsestatuscode = "201")
     @RequestMapping(method = RequestMethod.GET, value = "/")
-    public @ApiResponseObject ResponseEntity<List<SurveyDTO>> getAllSurveys() {
+    public @ApiResponseObject ResponseEntity<List<SurveyDTO>> getAllSurveys(HttpServletRequest request) {
         log.debug("Get all surveys");
+        HttpHeaders headers = new HttpHeaders();
+        if (isNotModified(dataService.getAllSurveysVersion(), request, headers)) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
         List<SurveyDTO> surveyDTOList = dataService.getAllSurveys();
-        return new ResponseEntity<>(surveyDTOList, HttpStatus.OK);
+        return new ResponseEntity<>(surveyDTOList, headers, HttpStatus.OK);
+    }
+
+    /**
+     * List surveys a page at a time without their questions, optionally only those in the given statuses.  The next
+     * page is requested with <code>after</code> set to the <code>nextAfter</code> of the previous one.
+     * <p>
+     * Security:  Requires SURVEY_USER.
+     */
+    @PreAuthorize("hasRole('SURVEY_USER')")
+    @ApiMethod(description = "List surveys without their questions (after=last id seen, limit, status=PUBLISHED|UNPUBLISHED|...)", responsestatuscode = "201")
+    @RequestMapping(method = RequestMethod.GET, value = "/listing")
+    public @ApiResponseObject ResponseEntity<SurveyListPageDTO> getSurveyListing(
+            @RequestParam(value = "after", defaultValue = "0") long after,
+            @RequestParam(value = "limit", defaultValue = "50") int limit,
+            @RequestParam(value = "status", required = false) List<String> status,
+            HttpServletRequest request) {
+        Set<PublishedState> statuses = new HashSet<>();
+        if (status != null) {
+            for (String name : status) {
+                try {
+                    statuses.add(PublishedState.valueOf(name.trim().toUpperCase()));
+                } catch (IllegalArgumentException e) {
+                    log.warn("Invalid survey status: " + name);
+                    return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+                }
+            }
+        }
+        HttpHeaders headers = new HttpHeaders();
+        if (isNotModified(dataService.getAllSurveysVersion(), request, headers)) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+        SurveyListPageDTO page = dataService.getSurveyListing(after, statuses, limit);
+        return new ResponseEntity<>(page, headers, HttpStatus.OK);
     }
 
     /**
@@ -145,10 +210,15 @@ public class SurveyRestController {
     @PreAuthorize("hasRole('SURVEY_USER')")
     @ApiMethod(description = "Fetch a survey by id", responsestatuscode = "201")
     @RequestMapping(method = RequestMethod.GET, value = "/{survey}")
-    public @ApiResponseObject ResponseEntity<SurveyDTO> getSurvey(@ApiPathParam(name = "survey") @PathVariable Long survey) {
+    public @ApiResponseObject ResponseEntity<SurveyDTO> getSurvey(@ApiPathParam(name = "survey") @PathVariable Long survey,
+            HttpServletRequest request) {
         log.debug("Get survey: " + survey);
+        HttpHeaders headers = new HttpHeaders();
+        if (isNotModified(dataService.getSurveyVersion(survey), request, headers)) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
         SurveyDTO surveyDTO = dataService.getSurvey(survey);
-        return new ResponseEntity<>(surveyDTO, HttpStatus.OK);
+        return new ResponseEntity<>(surveyDTO, headers, HttpStatus.OK);
     }
 
     /**
@@ -159,10 +229,15 @@ public class SurveyRestController {
     @PreAuthorize("hasRole('SURVEY_USER')")
     @ApiMethod(description = "Fetch a survey by name", responsestatuscode = "201")
     @RequestMapping(method = RequestMethod.GET, value = "/surveyByName/{surveyName}")
-    public ResponseEntity<SurveyDTO> getSurvey(@ApiPathParam(name = "surveyName") @PathVariable String surveyName) {
+    public ResponseEntity<SurveyDTO> getSurvey(@ApiPathParam(name = "surveyName") @PathVariable String surveyName,
+            HttpServletRequest request) {
         log.debug("Get survey: " + surveyName);
+        HttpHeaders headers = new HttpHeaders();
+        if (isNotModified(dataService.getSurveyVersion(surveyName), request, headers)) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
         SurveyDTO surveyDTO = dataService.getSurveyByName(surveyName);
-        return new ResponseEntity<>(surveyDTO, HttpStatus.OK);
+        return new ResponseEntity<>(surveyDTO, headers, HttpStatus.OK);
     }
 
     /**
@@ -173,10 +248,42 @@ public class SurveyRestController {
     @PreAuthorize("hasRole('SURVEY_USER')")
     @ApiMethod
     @RequestMapping(method = RequestMethod.GET, value = "/{survey}/questions")
-    public ResponseEntity<List<SurveyQuestionDTO>> getSurveyQuestions(@ApiPathParam(name = "survey") @PathVariable Long survey) {
+    public ResponseEntity<List<SurveyQuestionDTO>> getSurveyQuestions(@ApiPathParam(name = "survey") @PathVariable Long survey,
+            HttpServletRequest request) {
         log.debug("Get survey: " + survey);
+        HttpHeaders headers = new HttpHeaders();
+        if (isNotModified(dataService.getSurveyVersion(survey), request, headers)) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
         List<SurveyQuestionDTO> sqList = dataService.getSurveyQuestions(survey);
-        return new ResponseEntity<>(sqList, HttpStatus.OK);
+        return new ResponseEntity<>(sqList, headers, HttpStatus.OK);
+    }
+
+    /**
+     * Set the validators of a survey resource and compare them with those of the request.  The version is read before
+     * the resource so a concurrent change can only make the validators older, never newer.
+     * @param version null if the survey does not exist, in which case nothing is set
+     * @return true if the client's copy is current
+     */
+    private boolean isNotModified(SurveyVersion version, HttpServletRequest request, HttpHeaders headers) {
+        if (version == null) {
+            return false;
+        }
+        headers.setETag(version.getETag());
+        headers.setLastModified(version.getLastModified().getTime());
+        headers.setCacheControl("no-cache");
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return ifNoneMatch.contains(version.getETag());
+        }
+        try {
+            long ifModifiedSince = request.getDateHeader("If-Modified-Since");
+            // HTTP dates have a resolution of one second
+            return ifModifiedSince >= 0 && version.getLastModified().getTime() / 1000 <= ifModifiedSince / 1000;
+        } catch (IllegalArgumentException e) {
+            log.debug("Ignoring invalid If-Modified-Since: " + request.getHeader("If-Modified-Since"));
+            return false;
+        }
     }
 
     /**
@@ -342,7 +449,14 @@ public class SurveyRestController {
     }
 
     /**
-     * Create a user's response (answers)
+     * Create a user's response (answers).  When write-behind is enabled the response is acknowledged with 202
+     * (Accepted) once it is journaled, and saved shortly after; the acknowledged response has no id yet.
+     * <p>
+     * A user has one response per survey.  A request with the Idempotency-Key of a recent successful request by the
+     * same user with the same answers gets that request's result without the response being saved again; one with
+     * different answers is rejected with 400 (Bad Request).  A request made while the user's response already exists
+     * updates it with the submitted answers and is answered with 200 (OK).  Only a request that loses a race with a
+     * concurrent first submission of the user's response is not saved; it gets the response that won.
      * <p>
      * Security:  Requires SURVEY_USER.
      */
@@ -350,25 +464,154 @@ public class SurveyRestController {
     @ApiMethod(description = "Create a user's response (answers)", responsestatuscode = "201")
     @RequestMapping(method = RequestMethod.POST, value = "/surveyAnswers")
     public @ApiResponseObject ResponseEntity<ResponseDTO> addResponse(
-            @ApiBodyObject @RequestBody ResponseDTO response,
+            @ApiBodyObject @RequestBody final ResponseDTO response,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             Principal principal) {
         response.setUser(principal.getName());
-        ResponseDTO newResponse = null;
-        HttpStatus status = HttpStatus.CREATED;
 
         try {
-            newResponse = dataService.createResponse(response);
+            if (idempotencyKey == null) {
+                return createResponse(response);
+            }
+            return idempotencyKeys.execute(principal.getName() + ":addResponse", idempotencyKey,
+                    toIdempotencyContent(response), new Callable<ResponseEntity<ResponseDTO>>() {
+                        @Override
+                        public ResponseEntity<ResponseDTO> call() {
+                            return createResponse(response);
+                        }
+                    });
         }
         catch (Exception e) {
-            status = HttpStatus.BAD_REQUEST;
             log.error("Error creating user" + principal.getName() + " response (answers): " + response.toString(), e);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * @return the content of a response submission in a canonical form, independent of the order of its answers
+     */
+    private static String toIdempotencyContent(ResponseDTO response) {
+        Map<Long, Set<Long>> answers = new TreeMap<>();
+        for (ResponseAnswerDTO answer : response.getAnswers()) {
+            answers.put(answer.getQuestion(), new TreeSet<>(answer.getAnswer()));
+        }
+        return response.getSurvey() + "\n" + answers + "\n" + response.getFeedback();
+    }
+
+    private ResponseEntity<ResponseDTO> createResponse(ResponseDTO response) {
+        if (responseWriteBehind.submitCreate(response)) {
+            return new ResponseEntity<>(response, HttpStatus.ACCEPTED);
+        }
+        Long existingId = dataService.getResponseIdByUserAndSurvey(response.getUser(), response.getSurvey());
+        if (existingId != null) {
+            response.setId(existingId);
+            ResponseDTO updatedResponse = dataService.updateResponse(response);
+            if (updatedResponse != null) {
+                return new ResponseEntity<>(updatedResponse, HttpStatus.OK);
+            }
+            // Deleted since; create it again
+            response.setId(0);
+        }
+        try {
+            return new ResponseEntity<>(dataService.createResponse(response), HttpStatus.CREATED);
+        } catch (DataIntegrityViolationException e) {
+            // Lost a race with a concurrent submission of the user's response
+            ResponseDTO existingResponse = dataService.getResponseByUserAndSurvey(response.getUser(),
+                    response.getSurvey());
+            if (existingResponse == null) {
+                throw e;
+            }
+            log.info("Response of user " + response.getUser() + " to survey " + response.getSurvey()
+                    + " was saved concurrently; returning it");
+            return new ResponseEntity<>(existingResponse, HttpStatus.OK);
+        }
+    }
+
+    /**
+     * Create many users' responses (answers) in one transaction, e.g. when loading responses collected offline.  Each
+     * response names its user.  Responses that cannot be mapped are rejected individually; the status of every
+     * response is returned in submission order.
+     * <p>
+     * Security:  Requires SURVEY_ADMIN.
+     */
+    @PreAuthorize("hasRole('SURVEY_ADMIN')")
+    @ApiMethod(description = "Create many users' responses (answers) in one transaction", responsestatuscode = "201")
+    @RequestMapping(method = RequestMethod.POST, value = "/surveyAnswers/batch")
+    public @ApiResponseObject ResponseEntity<List<ResponseBatchResultDTO>> addResponses(
+            @ApiBodyObject @RequestBody List<ResponseDTO> responses,
+            Principal principal) {
+        List<ResponseBatchResultDTO> results = null;
+        HttpStatus status = HttpStatus.OK;
+
+        try {
+            results = dataService.createResponses(responses);
+        }
+        catch (Exception e) {
+            status = HttpStatus.BAD_REQUEST;
+            log.error("Error creating batch of " + responses.size() + " responses for " + principal.getName(), e);
+        }
+
+        return new ResponseEntity<>(results, status);
+    }
+
+    /**
+     * Import responses from a CSV or JSON-lines request body naming user, survey, question and answers by canonical
+     * name (see {@link CsvResponseImportReader} and {@link JsonLinesResponseImportReader}).  The body is read as a
+     * stream and the responses are created in chunks, so files of any size can be imported.
+     * <p>
+     * Security:  Requires SURVEY_ADMIN.
+     */
+    @PreAuthorize("hasRole('SURVEY_ADMIN')")
+    @ApiMethod(description = "Import responses from CSV (format=csv) or JSON lines (format=jsonl)", responsestatuscode = "200")
+    @RequestMapping(method = RequestMethod.POST, value = "/surveyAnswers/import")
+    public @ApiResponseObject ResponseEntity<ResponseImportResultDTO> importResponses(
+            @RequestParam(value = "format", defaultValue = "csv") String format,
+            HttpServletRequest req, Principal principal) {
+        IResponseImportReader reader;
+        try {
+            if ("csv".equals(format)) {
+                reader = new CsvResponseImportReader(req.getReader());
+            } else if ("jsonl".equals(format)) {
+                reader = new JsonLinesResponseImportReader(req.getReader());
+            } else {
+                log.warn("Invalid import format: " + format);
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+        } catch (IOException e) {
+            log.error("Error reading response import from " + principal.getName(), e);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        try (IResponseImportReader rows = reader) {
+            return new ResponseEntity<>(responseImport.importResponses(rows), HttpStatus.OK);
+        } catch (IOException e) {
+            log.error("Error reading response import from " + principal.getName(), e);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
+    }
 
-        return new ResponseEntity<>(newResponse, status);
+    /**
+     * Save again every response submission still held in the write-behind journal from the specified sequence number
+     * on, e.g. to recover responses after a bad migration.  Requires write-behind with a retained journal to cover
+     * more than the submissions not yet saved.
+     * <p>
+     * Security:  Requires SURVEY_ADMIN.
+     */
+    @PreAuthorize("hasRole('SURVEY_ADMIN')")
+    @ApiMethod(description = "Replay response submissions from the write-behind journal", responsestatuscode = "202")
+    @RequestMapping(method = RequestMethod.POST, value = "/surveyAnswers/journal/replay")
+    public @ApiResponseObject ResponseEntity<Integer> replayResponseJournal(
+            @RequestParam(value = "from", defaultValue = "1") Long fromSequence) {
+        try {
+            return new ResponseEntity<>(responseWriteBehind.replay(fromSequence), HttpStatus.ACCEPTED);
+        } catch (Exception e) {
+            log.error("Error replaying write-behind journal from " + fromSequence, e);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
     }
 
     /**
-     * Update user's answers
+     * Update user's answers.  When write-behind is enabled the update is acknowledged with 202 (Accepted) once it is
+     * journaled, and saved shortly after.
      * <p>
      * Security:  Requires SURVEY_USER.  Can only PUT data owned by the
      * currently authenticated Principal.
@@ -378,36 +621,30 @@ public class SurveyRestController {
     @RequestMapping(method = RequestMethod.PUT, value = "/surveyAnswers/{responseId}")
     public @ApiResponseObject ResponseEntity<ResponseDTO> updateResponse(
             @ApiPathParam(name = "responseId") @PathVariable Long responseId,
-            @ApiBodyObject @RequestBody String body,
-            HttpServletRequest req, Principal principal) {
+            @ApiBodyObject @RequestBody ResponseDTO response,
+            Principal principal) {
 
-        log.debug(body);
-        HttpStatus status = HttpStatus.CREATED;
-        final ObjectMapper objectMapper = new ObjectMapper();
-        ResponseDTO response = null;
-        try {
-            response = objectMapper.readValue(body, ResponseDTO.class);
-        } catch (IOException e) {
-            status = HttpStatus.BAD_REQUEST;
-            log.error("Error parsing update to survey answers with id = " + responseId, e);
-            return new ResponseEntity<>(response, status);
-        }
         log.debug(response.toString());
-        assert(responseId == response.getId());
-        ResponseDTO existingResponse = dataService.getResponse(responseId);
-        if (existingResponse == null) {
-            status = HttpStatus.BAD_REQUEST;
-            log.error("Error no response with id = " + responseId);
-            return new ResponseEntity<>(response, status);
-        }
-        if (!existingResponse.getUser().equals(principal.getName())) {
-            status = HttpStatus.BAD_REQUEST;
-            log.error("Updated response user does not match existing response user");
-            return new ResponseEntity<>(response, status);
+        if (response.getId() != 0 && response.getId() != responseId) {
+            log.error("Update to survey answers with id = " + response.getId() + " sent for id = " + responseId);
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
         }
+        response.setId(responseId);
+        response.setUser(principal.getName());
+        HttpStatus status = HttpStatus.CREATED;
         ResponseDTO updatedResponse = null;
         try {
-            updatedResponse = dataService.updateResponse(response);
+            if (responseWriteBehind.submitUpdate(response)) {
+                return new ResponseEntity<>(response, HttpStatus.ACCEPTED);
+            }
+            updatedResponse = dataService.updateResponseForOwner(principal.getName(), response);
+            if (updatedResponse == null) {
+                log.error("Error no response with id = " + responseId);
+                return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+            }
+        } catch (AccessDeniedException e) {
+            log.error("Updated response user does not match existing response user");
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             status = HttpStatus.BAD_REQUEST;
             log.error("Error updating user" + principal.getName() + " response (answers): " + response.toString(), e);
@@ -416,17 +653,160 @@ public class SurveyRestController {
     }
 
     /**
-     * Return summary of user responses for a survey.
+     * Save the user's answer to one question, e.g. as the user answers it.  Only the answer to that question is sent
+     * and written; an answer with no answer ids clears it, and 204 (No Content) is returned.  When write-behind is
+     * enabled the answer is acknowledged with 202 (Accepted) once it is journaled, and saved shortly after.
+     * <p>
+     * Security:  Requires SURVEY_USER.  Can only PATCH data owned by the
+     * currently authenticated Principal.
+     */
+    @PreAuthorize("hasRole('SURVEY_USER')")
+    @ApiMethod(description = "Save user's answer to one question", responsestatuscode = "200")
+    @RequestMapping(method = RequestMethod.PATCH, value = "/surveyAnswers/{responseId}/questions/{questionId}")
+    public @ApiResponseObject ResponseEntity<ResponseAnswerDTO> updateResponseAnswer(
+            @ApiPathParam(name = "responseId") @PathVariable Long responseId,
+            @ApiPathParam(name = "questionId") @PathVariable Long questionId,
+            @ApiBodyObject @RequestBody ResponseAnswerDTO answer,
+            Principal principal) {
+        if (answer.getQuestion() != null && !answer.getQuestion().equals(questionId)) {
+            log.error("Answer to question " + answer.getQuestion() + " sent for question " + questionId);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        answer.setQuestion(questionId);
+        ResponseAnswerDTO updatedAnswer;
+        try {
+            if (responseWriteBehind.submitAnswer(responseId, principal.getName(), answer)) {
+                return answer.getAnswer().isEmpty() ? new ResponseEntity<ResponseAnswerDTO>(HttpStatus.ACCEPTED)
+                        : new ResponseEntity<>(answer, HttpStatus.ACCEPTED);
+            }
+            updatedAnswer = dataService.updateResponseAnswer(responseId, principal.getName(), answer);
+        } catch (AccessDeniedException e) {
+            log.error("Updated response user does not match existing response user");
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        } catch (Exception e) {
+            log.error("Error updating user " + principal.getName() + " answer: " + answer.toString(), e);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if (updatedAnswer == null) {
+            return new ResponseEntity<>(answer.getAnswer().isEmpty() ? HttpStatus.NO_CONTENT : HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(updatedAnswer, HttpStatus.OK);
+    }
+
+    /**
+     * Return summary of user responses for a survey.  The optional filter parameters, each of the form
+     * <code>questionId:answerId</code>, restrict the summary to respondents who selected one of the listed answers
+     * for every question named.  With <code>mode=approximate</code> the counts are estimated from a random sample of
+     * the responses and returned with 95% confidence intervals; this cannot be combined with a filter.
+     * <p>
+     * Unfiltered summaries carry an ETag; a request whose If-None-Match matches the current version of the summary
+     * is answered with 304 (Not Modified) without building or serializing it.
      * <p>
      * Security:  Requires SURVEY_ADMIN.  (Should it?)
      */
     @PreAuthorize("hasRole('SURVEY_ADMIN')")
-    @ApiMethod(description = "Return summary of user response for a survey", responsestatuscode = "201")
+    @ApiMethod(description = "Return summary of user response for a survey, optionally restricted by filter=questionId:answerId or estimated by mode=approximate", responsestatuscode = "201")
     @RequestMapping(method = RequestMethod.GET, value = "/{survey}/summary")
-    public @ApiResponseObject ResponseEntity<SurveySummaryDTO> getSurveySummary(@ApiPathParam(name = "survey") @PathVariable Long survey) {
-        SurveySummaryDTO summaryDTO = dataService.getSurveySummary(survey);
-        log.debug(summaryDTO.toString());
-        return new ResponseEntity<>(summaryDTO, HttpStatus.OK);
+    public @ApiResponseObject ResponseEntity<SurveySummaryDTO> getSurveySummary(@ApiPathParam(name = "survey") @PathVariable Long survey,
+            @RequestParam(value = "filter", required = false) List<String> filter,
+            @RequestParam(value = "mode", defaultValue = "exact") String mode,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        Map<Long, Set<Long>> answerFilter = new HashMap<>();
+        if (filter != null) {
+            for (String predicate : filter) {
+                String[] ids = predicate.split(":");
+                try {
+                    Long questionId = Long.valueOf(ids[0].trim());
+                    Long answerId = Long.valueOf(ids[1].trim());
+                    if (!answerFilter.containsKey(questionId)) {
+                        answerFilter.put(questionId, new HashSet<Long>());
+                    }
+                    answerFilter.get(questionId).add(answerId);
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    log.warn("Invalid summary filter: " + predicate);
+                    return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+                }
+            }
+        }
+        if ("approximate".equals(mode)) {
+            if (!answerFilter.isEmpty()) {
+                log.warn("Approximate summaries cannot be filtered");
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            SurveySummaryDTO summaryDTO = dataService.getApproximateSurveySummary(survey);
+            if (summaryDTO == null) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            return new ResponseEntity<>(summaryDTO, HttpStatus.OK);
+        } else if (!"exact".equals(mode)) {
+            log.warn("Invalid summary mode: " + mode);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        if (!answerFilter.isEmpty()) {
+            SurveySummaryDTO summaryDTO = dataService.getSurveySummary(survey, answerFilter);
+            log.debug(summaryDTO.toString());
+            return new ResponseEntity<>(summaryDTO, HttpStatus.OK);
+        }
+
+        // Read the version before the summary so a concurrent save can only make the ETag older, never newer
+        String version = dataService.getSurveySummaryVersion(survey);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag("\"" + version + "\"");
+        headers.setCacheControl("no-cache");
+        if (ifNoneMatch != null && ifNoneMatch.contains(headers.getETag())) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+        SurveySummaryDTO summaryDTO = dataService.getSurveySummary(survey, version);
+        return new ResponseEntity<>(summaryDTO, headers, HttpStatus.OK);
+    }
+
+    /**
+     * Return a contingency table of responses between two questions of a survey.
+     * <p>
+     * Security:  Requires SURVEY_ADMIN.
+     */
+    @PreAuthorize("hasRole('SURVEY_ADMIN')")
+    @ApiMethod(description = "Return a contingency table of user responses between two questions of a survey", responsestatuscode = "201")
+    @RequestMapping(method = RequestMethod.GET, value = "/{survey}/crosstab")
+    public @ApiResponseObject ResponseEntity<CrosstabDTO> getSurveyCrosstab(
+            @ApiPathParam(name = "survey") @PathVariable Long survey,
+            @RequestParam("rowQuestion") Long rowQuestion,
+            @RequestParam("colQuestion") Long colQuestion) {
+        CrosstabDTO crosstabDTO = dataService.getSurveyCrosstab(survey, rowQuestion, colQuestion);
+        if (crosstabDTO == null) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(crosstabDTO, HttpStatus.OK);
+    }
+
+    /**
+     * Return the number of responses last updated within each hour, day or week.  Served from rollup buckets that are
+     * maintained as responses are saved, so polling it does not scan the responses.
+     * <p>
+     * Security:  Requires SURVEY_ADMIN.
+     */
+    @PreAuthorize("hasRole('SURVEY_ADMIN')")
+    @ApiMethod(description = "Return response counts per UTC hour, day or week (interval=hour|day|week, optional from/to in epoch millis)", responsestatuscode = "201")
+    @RequestMapping(method = RequestMethod.GET, value = "/{survey}/responseRollup")
+    public @ApiResponseObject ResponseEntity<ResponseRollupDTO> getResponseRollup(
+            @ApiPathParam(name = "survey") @PathVariable Long survey,
+            @RequestParam(value = "interval", defaultValue = "day") String interval,
+            @RequestParam(value = "from", required = false) Long from,
+            @RequestParam(value = "to", required = false) Long to) {
+        RollupInterval rollupInterval;
+        try {
+            rollupInterval = RollupInterval.valueOf(interval.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid rollup interval: " + interval);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        ResponseRollupDTO rollupDTO = dataService.getResponseRollup(survey, rollupInterval,
+                from == null ? null : new Date(from), to == null ? null : new Date(to));
+        if (rollupDTO == null) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(rollupDTO, HttpStatus.OK);
     }
 
     /**
@@ -18,9 +18,15 @@
  */
 package org.jasig.portlet.survey.mvc.service;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.jasig.portlet.survey.PublishedState;
 import org.jasig.portlet.survey.service.dto.*;
+import org.jasig.portlet.survey.service.survey.SurveyVersion;
 
 public interface ISurveyDataService {
     public boolean addQuestionToSurvey(Long surveyId, Long questionId, SurveyQuestionDTO surveyQuestion);
@@ -31,19 +37,115 @@ public interface ISurveyDataService {
     public ITextGroup createTextGroup(ITextGroup textGroup);
 
     public List<SurveyDTO> getAllSurveys();
+
+    /**
+     * List surveys a page at a time, in id order and without their questions.
+     * @param afterId only surveys with a greater id are listed; 0 for the first page
+     * @param statuses statuses to list; null or empty for all
+     * @param limit maximum number of surveys, capped by configuration
+     */
+    public SurveyListPageDTO getSurveyListing(long afterId, Collection<PublishedState> statuses, int limit);
     public SurveyDTO getSurvey(long id);
     public SurveyDTO getSurveyByName(String surveyName);
     public List<SurveyQuestionDTO> getSurveyQuestions(Long surveyId);
     public ITextGroup getTextGroup(String textKey);
 
+    /**
+     * Fetch the text groups of several keys, e.g. those of every survey of a list, at once.
+     * @return text group by key; an empty text group for keys that have none
+     */
+    public Map<String, ITextGroup> getTextGroups(Collection<String> textKeys);
+
+    /**
+     * Validators of a survey's definition and questions, read without loading the survey.
+     * @return null if there is no such survey
+     */
+    public SurveyVersion getSurveyVersion(long id);
+    public SurveyVersion getSurveyVersion(String surveyName);
+
+    /**
+     * Validators of the list of all surveys.
+     */
+    public SurveyVersion getAllSurveysVersion();
+
     public SurveyDTO updateSurvey(SurveyDTO survey);
     public QuestionDTO updateQuestion(QuestionDTO question);
 
+    /**
+     * Save the user's response to a survey.  A user has one response per survey; if the user already responded, that
+     * response is updated with the submitted answers.
+     */
     ResponseDTO createResponse(ResponseDTO response);
+    List<ResponseBatchResultDTO> createResponses(List<ResponseDTO> responses);
     ResponseDTO getResponse(long id);
     List<ResponseDTO> getResponseByUser(String user);
     ResponseDTO getResponseByUserAndSurvey(String user, long surveyId);
+
+    /**
+     * @return id of the user's response to the survey, or null if the user has not responded
+     */
+    Long getResponseIdByUserAndSurvey(String user, long surveyId);
     ResponseDTO updateResponse(ResponseDTO response);
 
+    /**
+     * Update a user's own response.  The owner is checked against the same stored response that is updated.
+     * @return the updated response, or null if there is no such response
+     * @throws org.springframework.security.access.AccessDeniedException if the response is not the user's
+     */
+    ResponseDTO updateResponseForOwner(String user, ResponseDTO response);
+
+    /**
+     * @return user who owns the response, or null if there is no such response
+     */
+    String getResponseOwner(long responseId);
+
+    /**
+     * @return id of the survey the response answers, or null if there is no such response
+     */
+    Long getResponseSurvey(long responseId);
+
+    /**
+     * Replace the answer to one question of a user's own response.  An answer with no answer ids clears the answer
+     * to the question.
+     * @return the saved answer, or null if there is no such response or the answer was cleared
+     * @throws org.springframework.security.access.AccessDeniedException if the response is not the user's
+     */
+    ResponseAnswerDTO updateResponseAnswer(long responseId, String user, ResponseAnswerDTO answer);
+
+    /**
+     * Save a response submitted earlier, e.g. one held in the write-behind journal, stamped with its submission time
+     * rather than the time of the save.  A submission without an id creates the user's response or updates the
+     * existing one.  A submission older than the stored response's last update is ignored, so saving it late or a
+     * second time never rolls newer answers back.
+     * @param response the submission, with its submission time as lastUpdated
+     * @return the saved response, or null if the submission was ignored or its response no longer exists
+     * @throws org.springframework.security.access.AccessDeniedException if the response is not the user's
+     */
+    ResponseDTO saveSubmittedResponse(ResponseDTO response);
+
+    /**
+     * As {@link #updateResponseAnswer(long, String, ResponseAnswerDTO)}, for an answer submitted earlier.  Ignored if
+     * the stored response was updated after the submission.
+     * @return the saved answer, or null if the submission was ignored, the response no longer exists or the answer
+     *         was cleared
+     */
+    ResponseAnswerDTO saveSubmittedResponseAnswer(long responseId, String user, ResponseAnswerDTO answer,
+            Date submitted);
+
     SurveySummaryDTO getSurveySummary(Long surveyId);
+
+    /**
+     * As {@link #getSurveySummary(Long)}, for a caller that already read the summary's version.
+     * @param version version from {@link #getSurveySummaryVersion(Long)}, read before calling
+     */
+    SurveySummaryDTO getSurveySummary(Long surveyId, String version);
+    SurveySummaryDTO getSurveySummary(Long surveyId, Map<Long, Set<Long>> answerFilter);
+    ApproximateSurveySummaryDTO getApproximateSurveySummary(Long surveyId);
+
+    /**
+     * @return opaque version of the survey's unfiltered summary that changes whenever the summary may have changed
+     */
+    String getSurveySummaryVersion(Long surveyId);
+    CrosstabDTO getSurveyCrosstab(Long surveyId, Long rowQuestionId, Long columnQuestionId);
+    ResponseRollupDTO getResponseRollup(Long surveyId, RollupInterval interval, Date from, Date to);
 }
@@ -19,21 +19,46 @@
 package org.jasig.portlet.survey.mvc.service;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.Validate;
 import org.jasig.portlet.survey.IVariantStrategy;
 import org.jasig.portlet.survey.PublishedState;
 import org.jasig.portlet.survey.mvc.service.ISurveyDataService;
 import org.jasig.portlet.survey.service.dto.*;
 import org.jasig.portlet.survey.service.jpa.*;
+import org.jasig.portlet.survey.service.summary.ISurveySummaryStrategy;
+import org.jasig.portlet.survey.service.summary.SurveyAnswerIndexService;
+import org.jasig.portlet.survey.service.summary.SurveySummaryCache;
+import org.jasig.portlet.survey.service.summary.SurveySummarySampler;
+import org.jasig.portlet.survey.service.survey.PublishedSurveyCache;
+import org.jasig.portlet.survey.service.survey.SurveyVersion;
+import org.jasig.portlet.survey.service.survey.TextGroupCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.google.common.collect.Lists;
 
@@ -45,6 +70,11 @@ import com.google.common.collect.Lists;
 public class JpaSurveyDataService implements ISurveyDataService {
     public static final String TABLENAME_PREFIX = "SURVEY_";
 
+    /**
+     * Responses persisted per flush by {@link #createResponses}; matches hibernate.jdbc.batch_size.
+     */
+    private static final int RESPONSE_BATCH_SIZE = 25;
+
     @Autowired
     private IJpaSurveyDao jpaSurveyDao;
 
@@ -55,6 +85,37 @@ public class JpaSurveyDataService implements ISurveyDataService {
 
     @Autowired
     private IVariantStrategy variantStrategy;
+
+    @Autowired
+    private ISurveySummaryStrategy summaryStrategy;
+
+    @Autowired
+    private SurveyAnswerIndexService answerIndexService;
+
+    @Autowired
+    private SurveySummaryCache summaryCache;
+
+    @Autowired
+    private PublishedSurveyCache publishedSurveys;
+
+    @Autowired
+    private TextGroupCache textGroups;
+
+    @Value("${survey.listing.maxPageSize:200}")
+    private int maxListingPageSize;
+
+    @Autowired
+    private SurveySummarySampler summarySampler;
+
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired(required = false)
+    private List<IResponseSaveListener> responseSaveListeners = new ArrayList<>();
+
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
     
     /**
      * 
@@ -72,6 +133,14 @@ public class JpaSurveyDataService implements ISurveyDataService {
         sq.setSequence( surveyQuestion.getSequence());
         
         JpaSurveyQuestion newSurveyQuestion = jpaSurveyDao.attachQuestionToSurvey(surveyId, questionId, sq);
+        final long summarySurveyId = surveyId;
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                summaryCache.invalidate(summarySurveyId);
+                publishedSurveys.invalidate(summarySurveyId);
+            }
+        });
         return newSurveyQuestion != null;
     }
 
@@ -132,6 +201,16 @@ public class JpaSurveyDataService implements ISurveyDataService {
         jpaSurveyText.setDefinitionText(textGroup.getDefinitionText());
         jpaSurveyText.setHelpText(textGroup.getHelpText());
         jpaSurveyText.setText(textGroup.getText());
+        // The text group may be that of any survey
+        final String textKey = textGroup.getKey();
+        jpaSurveyDao.touchSurveysWithText(textKey, new Timestamp(new Date().getTime()));
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                textGroups.invalidate(textKey);
+                publishedSurveys.invalidateAll();
+            }
+        });
         return jpaSurveyDao.createSurveyText(jpaSurveyText);
     }
 
@@ -148,12 +227,41 @@ public class JpaSurveyDataService implements ISurveyDataService {
             return null;
         }
         List<SurveyDTO> results = surveyMapper.toSurveyList(surveyList);
+        // Load the text of every survey at once; retrieveText then finds it cached
+        Set<String> textKeys = new HashSet<>();
+        for (SurveyDTO surveyDTO : results) {
+            if (surveyDTO.getTextKey() != null) {
+                textKeys.add(surveyDTO.getTextKey());
+            }
+        }
+        getTextGroups(textKeys);
         for (SurveyDTO surveyDTO : results) {
             surveyDTO.retrieveText(this);
         }
         return results;
     }
 
+    /**
+     * Surveys are listed from a projection of their columns, so no question or answer is loaded.  One extra survey is
+     * read to tell whether another page follows.
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    @Override
+    public SurveyListPageDTO getSurveyListing(long afterId, Collection<PublishedState> statuses, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, maxListingPageSize));
+        List<SurveyListItem> items = jpaSurveyDao.getSurveyListItems(afterId, statuses, pageSize + 1);
+        List<SurveyListItemDTO> surveys = new ArrayList<>();
+        for (SurveyListItem item : items.subList(0, Math.min(items.size(), pageSize))) {
+            surveys.add(surveyMapper.toSurveyListItem(item));
+        }
+        SurveyListPageDTO page = new SurveyListPageDTO();
+        page.setSurveys(surveys);
+        if (items.size() > pageSize) {
+            page.setNextAfter(surveys.get(surveys.size() - 1).getId());
+        }
+        return page;
+    }
+
     /**
      * Search for {@link JpaSurvey} specified by id.
      * 
@@ -163,24 +271,40 @@ public class JpaSurveyDataService implements ISurveyDataService {
     @Override
     @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public SurveyDTO getSurvey(long id) {
+        SurveyDTO cached = publishedSurveys.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = publishedSurveys.getGeneration();
         JpaSurvey jpaSurvey = jpaSurveyDao.getSurvey(id);
         if (jpaSurvey == null) {
             return null;
         }
         SurveyDTO result = surveyMapper.toSurvey(jpaSurvey);
         result.retrieveText(this);
+        publishedSurveys.put(generation, result);
         return result;
     }
 
+    /**
+     * PUBLISHED surveys are served from the {@link PublishedSurveyCache}, so the survey page of respondents does not
+     * touch the database once the survey has been loaded.
+     */
     @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     @Override
     public SurveyDTO getSurveyByName(String surveyName) {
+        SurveyDTO cached = publishedSurveys.getByName(surveyName);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = publishedSurveys.getGeneration();
         JpaSurvey jpaSurvey = jpaSurveyDao.getSurveyByCanonicalName(surveyName);
         if (jpaSurvey == null) {
             return null;
         }
         SurveyDTO result = surveyMapper.toSurvey(jpaSurvey);
         result.retrieveText(this);
+        publishedSurveys.put(generation, result);
         return result;
     }
 
@@ -211,7 +335,82 @@ public class JpaSurveyDataService implements ISurveyDataService {
     @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     @Override
     public ITextGroup getTextGroup(String textKey) {
-        return jpaSurveyDao.getText(textKey, variantStrategy.getVariantName());
+        if (textKey == null) {
+            return new JpaSurveyText();
+        }
+        return getTextGroups(Collections.singleton(textKey)).get(textKey);
+    }
+
+    /**
+     * Text groups not in the {@link TextGroupCache} are resolved through the variant chain with a single query and
+     * cached, including the empty text groups of keys that have none.
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    @Override
+    public Map<String, ITextGroup> getTextGroups(Collection<String> textKeys) {
+        List<String> variants = variantStrategy.getVariantChain();
+        Map<String, ITextGroup> results = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        for (String textKey : textKeys) {
+            ITextGroup cached = textGroups.get(textKey, variants);
+            if (cached != null) {
+                results.put(textKey, cached);
+            } else {
+                missing.add(textKey);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long generation = textGroups.getGeneration();
+            for (Map.Entry<String, JpaSurveyText> text : jpaSurveyDao.getTexts(missing, variants).entrySet()) {
+                textGroups.put(generation, text.getKey(), variants, text.getValue());
+                results.put(text.getKey(), text.getValue());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * The tag combines the survey's last update date with the variant chain, since the text served depends on both.
+     * Surveys in the {@link PublishedSurveyCache} are answered without a query.
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    @Override
+    public SurveyVersion getSurveyVersion(long id) {
+        SurveyDTO cached = publishedSurveys.get(id);
+        return toSurveyVersion(cached != null ? cached.getLastUpdateDate() : jpaSurveyDao.getSurveyLastUpdateDate(id));
+    }
+
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    @Override
+    public SurveyVersion getSurveyVersion(String surveyName) {
+        SurveyDTO cached = publishedSurveys.getByName(surveyName);
+        return toSurveyVersion(cached != null ? cached.getLastUpdateDate()
+                : jpaSurveyDao.getSurveyLastUpdateDate(surveyName));
+    }
+
+    /**
+     * Surveys are never deleted, so the count and the latest update date change whenever the list does.
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    @Override
+    public SurveyVersion getAllSurveysVersion() {
+        Date lastUpdated = jpaSurveyDao.getSurveysLastUpdateDate();
+        if (lastUpdated == null) {
+            lastUpdated = new Date(0);
+        }
+        return new SurveyVersion(jpaSurveyDao.countSurveys() + "-" + lastUpdated.getTime() + "-" + getVariantTag(),
+                lastUpdated);
+    }
+
+    private SurveyVersion toSurveyVersion(Date lastUpdated) {
+        if (lastUpdated == null) {
+            return null;
+        }
+        return new SurveyVersion(lastUpdated.getTime() + "-" + getVariantTag(), new Date(lastUpdated.getTime()));
+    }
+
+    private String getVariantTag() {
+        return Integer.toHexString(variantStrategy.getVariantChain().hashCode());
     }
 
     /**
@@ -231,6 +430,15 @@ public class JpaSurveyDataService implements ISurveyDataService {
 
         JpaQuestion jpaQuestion = surveyMapper.toJpaQuestion(question);
         jpaSurveyDao.updateQuestion(jpaQuestion);
+        // The question may be part of several surveys
+        jpaSurveyDao.touchSurveysWithQuestion(jpaQuestion.getId(), new Timestamp(new Date().getTime()));
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                summaryCache.invalidateAll();
+                publishedSurveys.invalidateAll();
+            }
+        });
 
         return surveyMapper.toQuestion(jpaQuestion);
     }
@@ -256,16 +464,148 @@ public class JpaSurveyDataService implements ISurveyDataService {
         jpaSurvey.setLastUpdateDate(new Timestamp(new Date().getTime()));
         jpaSurvey = jpaSurveyDao.updateSurvey( jpaSurvey);
 
+        // The merged survey has no questions, so it must not be cached; once committed, the next read of a survey
+        // just published loads and caches its full definition
+        final long surveyId = jpaSurvey.getId();
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                publishedSurveys.invalidate(surveyId);
+            }
+        });
         return surveyMapper.toSurvey(jpaSurvey);
     }
 
+    /**
+     * Create several responses in one transaction.  Responses are mapped and persisted in chunks of
+     * {@link #RESPONSE_BATCH_SIZE} so each chunk's inserts go out as JDBC batches and the persistence context stays
+     * small.  A response that cannot be mapped (null entry, missing user or survey, unknown survey, question or
+     * answer) is rejected and reported without affecting the others; a database error rolls back the whole batch.  So
+     * is a response from a user who already answered the survey, whether stored or earlier in the batch; stored
+     * responses are looked up with one query per chunk.  A response that carries a lastUpdated time (e.g. collected
+     * offline) keeps it.
+     */
+    @Transactional
+    @Override
+    public List<ResponseBatchResultDTO> createResponses(List<ResponseDTO> responses) {
+        List<ResponseBatchResultDTO> results = new ArrayList<>(responses.size());
+        List<JpaResponse> chunk = new ArrayList<>(RESPONSE_BATCH_SIZE);
+        List<Integer> chunkIndexes = new ArrayList<>(RESPONSE_BATCH_SIZE);
+        int created = 0;
+        for (int start = 0; start < responses.size(); start += RESPONSE_BATCH_SIZE) {
+            int end = Math.min(start + RESPONSE_BATCH_SIZE, responses.size());
+            // Earlier chunks are flushed, so this also finds their respondents
+            Map<Long, Set<String>> respondents = getRespondents(responses.subList(start, end));
+            for (int i = start; i < end; i++) {
+                ResponseDTO response = responses.get(i);
+                try {
+                    Validate.notNull(response, "Response is missing");
+                    Validate.notEmpty(response.getUser(), "Response has no user");
+                    Validate.isTrue(response.getSurvey() > 0, "Response has no survey");
+                    if (!respondents.containsKey(response.getSurvey())) {
+                        respondents.put(response.getSurvey(), new HashSet<String>());
+                    }
+                    Validate.isTrue(respondents.get(response.getSurvey()).add(response.getUser()),
+                            "User " + response.getUser() + " already responded to survey " + response.getSurvey());
+                    JpaResponse jpaResponse = surveyMapper.toJpaResponse(response);
+                    jpaResponse.setLastUpdated(
+                            response.getLastUpdated() != null ? response.getLastUpdated() : new Date());
+                    chunk.add(jpaResponse);
+                    chunkIndexes.add(i);
+                } catch (IllegalArgumentException e) {
+                    log.warn("Rejected response " + i + " of batch: " + e.getMessage());
+                    results.add(new ResponseBatchResultDTO(i, ResponseBatchResultDTO.REJECTED, null, e.getMessage()));
+                }
+            }
+            if (chunk.isEmpty()) {
+                continue;
+            }
+            for (JpaResponse jpaResponse : jpaSurveyDao.createResponses(chunk)) {
+                publishResponseSaved(jpaResponse, true);
+            }
+            for (int j = 0; j < chunk.size(); j++) {
+                results.add(new ResponseBatchResultDTO(chunkIndexes.get(j), ResponseBatchResultDTO.CREATED,
+                        chunk.get(j).getId(), null));
+            }
+            created += chunk.size();
+            chunk.clear();
+            chunkIndexes.clear();
+        }
+        Collections.sort(results, new Comparator<ResponseBatchResultDTO>() {
+            @Override
+            public int compare(ResponseBatchResultDTO r1, ResponseBatchResultDTO r2) {
+                return Integer.compare(r1.getIndex(), r2.getIndex());
+            }
+        });
+        log.debug("Created {} of {} responses in batch", created, responses.size());
+        return results;
+    }
+
+    /**
+     * @return stored respondents among the users of the responses, by survey id; entries without a user or survey are
+     *         skipped here and rejected by the caller
+     */
+    private Map<Long, Set<String>> getRespondents(List<ResponseDTO> responses) {
+        Set<Long> surveyIds = new HashSet<>();
+        Set<String> users = new HashSet<>();
+        for (ResponseDTO response : responses) {
+            if (response != null && StringUtils.isNotEmpty(response.getUser()) && response.getSurvey() > 0) {
+                surveyIds.add(response.getSurvey());
+                users.add(response.getUser());
+            }
+        }
+        return users.isEmpty() ? new HashMap<Long, Set<String>>() : jpaSurveyDao.getRespondents(surveyIds, users);
+    }
+
+    /**
+     * A user has at most one response to a survey.  If the user already responded, the stored response is updated
+     * with the submitted answers, as the write-behind path does, so a submission is never silently dropped.
+     */
     @Transactional
     @Override
     public ResponseDTO createResponse(ResponseDTO response) {
+        Long existingId = jpaSurveyDao.getResponseIdByUserAndSurvey(response.getUser(), response.getSurvey());
+        if (existingId != null) {
+            log.info("User " + response.getUser() + " already responded to survey " + response.getSurvey()
+                    + "; updating response " + existingId);
+            response.setId(existingId);
+            return updateResponse(jpaSurveyDao.getResponse(existingId), response, new Date());
+        }
+        return persistResponse(response, new Date());
+    }
+
+    @Transactional
+    @Override
+    public ResponseDTO saveSubmittedResponse(ResponseDTO response) {
+        Date submitted = response.getLastUpdated();
+        Validate.notNull(submitted, "Submitted response has no submission time");
+        Long existingId = response.getId() != 0 ? Long.valueOf(response.getId())
+                : jpaSurveyDao.getResponseIdByUserAndSurvey(response.getUser(), response.getSurvey());
+        if (existingId == null) {
+            return persistResponse(response, submitted);
+        }
+        JpaResponse existingResponse = jpaSurveyDao.getResponse(existingId);
+        if (existingResponse == null) {
+            log.warn("Cannot save submitted response " + existingId + " - does not exist");
+            return null;
+        }
+        if (!existingResponse.getUser().equals(response.getUser())) {
+            throw new AccessDeniedException("Response " + existingId + " is not owned by " + response.getUser());
+        }
+        if (existingResponse.getLastUpdated().after(submitted)) {
+            log.info("Ignoring submission of response " + existingId + " from " + submitted
+                    + "; it was updated since");
+            return null;
+        }
+        response.setId(existingId);
+        return updateResponse(existingResponse, response, submitted);
+    }
+
+    private ResponseDTO persistResponse(ResponseDTO response, Date lastUpdated) {
         JpaResponse jpaResponse = surveyMapper.toJpaResponse(response);
-        // Touch the lastUpdated filed to match this persist
-        jpaResponse.setLastUpdated(new Date());
+        jpaResponse.setLastUpdated(lastUpdated);
         jpaSurveyDao.createResponse(jpaResponse);
+        publishResponseSaved(jpaResponse, true);
         return surveyMapper.toResponse(jpaResponse);
     }
 
@@ -294,6 +634,12 @@ public class JpaSurveyDataService implements ISurveyDataService {
         return jpaResponse == null ? null : surveyMapper.toResponse(jpaResponse);
     }
 
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    @Override
+    public Long getResponseIdByUserAndSurvey(String user, long surveyId) {
+        return jpaSurveyDao.getResponseIdByUserAndSurvey(user, surveyId);
+    }
+
     @Transactional
     @Override
     public ResponseDTO updateResponse(ResponseDTO response) {
@@ -302,26 +648,312 @@ public class JpaSurveyDataService implements ISurveyDataService {
             log.warn("Cannot update response - does not exist", response.toString());
             return null;
         }
+        return updateResponse(existingResponse, response, new Date());
+    }
+
+    @Transactional
+    @Override
+    public ResponseDTO updateResponseForOwner(String user, ResponseDTO response) {
+        JpaResponse existingResponse = jpaSurveyDao.getResponse(response.getId());
+        if (existingResponse == null) {
+            log.warn("Cannot update response - does not exist", response.toString());
+            return null;
+        }
+        if (!existingResponse.getUser().equals(user)) {
+            throw new AccessDeniedException("Response " + response.getId() + " is not owned by " + user);
+        }
+        return updateResponse(existingResponse, response, new Date());
+    }
+
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    @Override
+    public String getResponseOwner(long responseId) {
+        return jpaSurveyDao.getResponseUser(responseId);
+    }
+
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    @Override
+    public Long getResponseSurvey(long responseId) {
+        return jpaSurveyDao.getResponseSurveyId(responseId);
+    }
+
+    private ResponseDTO updateResponse(JpaResponse existingResponse, ResponseDTO response, Date lastUpdated) {
+        Validate.isTrue(existingResponse.getSurvey().getId() == response.getSurvey(),
+                "Response " + response.getId() + " is not a response to survey " + response.getSurvey());
 
         JpaResponse jpaResponse = surveyMapper.toJpaResponse(response);
         log.debug("existing response: " + existingResponse.toString());
         log.debug("source DTO response: " + response.toString());
         log.debug("mapped response: " + jpaResponse.toString());
 
-        // Touch the lastUpdated filed to match this persist
-        jpaResponse.setLastUpdated(new Date());
-        jpaResponse = jpaSurveyDao.updateResponse(jpaResponse);
+        jpaResponse.setLastUpdated(lastUpdated);
+        // Apply only what changed to the stored response rather than merging the whole graph
+        jpaResponse = jpaSurveyDao.updateResponseAnswers(existingResponse, jpaResponse);
+        publishResponseSaved(jpaResponse, false);
         log.debug("updated response: " + jpaResponse.toString());
         return surveyMapper.toResponse(jpaResponse);
     }
 
-    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    @Transactional
+    @Override
+    public ResponseAnswerDTO updateResponseAnswer(long responseId, String user, ResponseAnswerDTO answer) {
+        JpaResponse existingResponse = jpaSurveyDao.getResponse(responseId);
+        if (existingResponse == null) {
+            log.warn("Cannot update answer to question " + answer.getQuestion() + " - response " + responseId
+                    + " does not exist");
+            return null;
+        }
+        if (!existingResponse.getUser().equals(user)) {
+            throw new AccessDeniedException("Response " + responseId + " is not owned by " + user);
+        }
+        return updateResponseAnswer(existingResponse, answer, new Date());
+    }
+
+    @Transactional
+    @Override
+    public ResponseAnswerDTO saveSubmittedResponseAnswer(long responseId, String user, ResponseAnswerDTO answer,
+            Date submitted) {
+        Validate.notNull(submitted, "Submitted answer has no submission time");
+        JpaResponse existingResponse = jpaSurveyDao.getResponse(responseId);
+        if (existingResponse == null) {
+            log.warn("Cannot save submitted answer to question " + answer.getQuestion() + " - response "
+                    + responseId + " does not exist");
+            return null;
+        }
+        if (!existingResponse.getUser().equals(user)) {
+            throw new AccessDeniedException("Response " + responseId + " is not owned by " + user);
+        }
+        if (existingResponse.getLastUpdated().after(submitted)) {
+            log.info("Ignoring submission of answer to question " + answer.getQuestion() + " of response "
+                    + responseId + " from " + submitted + "; the response was updated since");
+            return null;
+        }
+        return updateResponseAnswer(existingResponse, answer, submitted);
+    }
+
+    private ResponseAnswerDTO updateResponseAnswer(JpaResponse existingResponse, ResponseAnswerDTO answer,
+            Date lastUpdated) {
+        JpaResponseAnswer jpaResponseAnswer = surveyMapper.toJpaResponseAnswer(existingResponse, answer);
+        JpaResponse jpaResponse = jpaSurveyDao.updateResponseAnswer(existingResponse, jpaResponseAnswer, lastUpdated);
+        publishResponseSaved(jpaResponse, false);
+        return jpaResponseAnswer.getAnswer().isEmpty() ? null
+                : surveyMapper.toResponseAnswer(jpaResponse, jpaResponseAnswer);
+    }
+
+    /**
+     * Return the survey's summary from the {@link SurveySummaryCache} if nothing changed since it was built;
+     * otherwise build it with the configured {@link ISurveySummaryStrategy}.  Not transactional so that cache hits do
+     * no more than read the version; the summary is built in its own read-write transaction since the default (counter
+     * based) strategy builds counters on first request for surveys answered before counters existed.
+     */
     @Override
     public SurveySummaryDTO getSurveySummary(Long surveyId) {
-        List<JpaResponse> responses = jpaSurveyDao.getResponseBySurvey(surveyId);
-        SurveySummaryDTO summary = new SurveySummaryDTO(responses);
-        //summary.setResponses(responses);
+        return getSurveySummary(surveyId, getSurveySummaryVersion(surveyId));
+    }
+
+    @Override
+    public SurveySummaryDTO getSurveySummary(final Long surveyId, String version) {
+        SurveySummaryDTO summary = summaryCache.get(surveyId, version);
+        if (summary != null) {
+            return summary;
+        }
+        summary = transactionTemplate.execute(new TransactionCallback<SurveySummaryDTO>() {
+            @Override
+            public SurveySummaryDTO doInTransaction(TransactionStatus status) {
+                JpaSurvey survey = jpaSurveyDao.getSurvey(surveyId);
+                return survey == null ? null : summaryStrategy.getSurveySummary(survey);
+            }
+        });
+        if (summary == null) {
+            return SurveySummaryDTO.empty();
+        }
+        summaryCache.put(surveyId, version, summary);
         log.debug(summary.toString());
         return summary;
     }
+
+    /**
+     * Estimate the summary from a random sample of the survey's responses.
+     * @return null if the survey does not exist
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    @Override
+    public ApproximateSurveySummaryDTO getApproximateSurveySummary(Long surveyId) {
+        JpaSurvey survey = jpaSurveyDao.getSurvey(surveyId);
+        if (survey == null) {
+            return null;
+        }
+        return summarySampler.estimate(survey);
+    }
+
+    /**
+     * Combines the version of this node's {@link SurveySummaryCache}, which changes as soon as a save commits here,
+     * with state read from the database, which also changes with responses saved through other nodes.
+     */
+    @Override
+    public String getSurveySummaryVersion(Long surveyId) {
+        return summaryCache.getVersion(surveyId) + "-" + jpaSurveyDao.getSurveyDataVersion(surveyId);
+    }
+
+    /**
+     * Summarize only the responses that match the filter.  The filter is evaluated against the survey's answer index
+     * and only the matching responses are counted; no response is loaded.
+     * @param answerFilter answer ids keyed by question id; a response matches if it selected one of the listed answers
+     *                     for every question.  An empty filter summarizes all responses.
+     */
+    @Transactional
+    @Override
+    public SurveySummaryDTO getSurveySummary(Long surveyId, Map<Long, Set<Long>> answerFilter) {
+        if (answerFilter == null || answerFilter.isEmpty()) {
+            return getSurveySummary(surveyId);
+        }
+        JpaSurvey survey = jpaSurveyDao.getSurvey(surveyId);
+        if (survey == null) {
+            return SurveySummaryDTO.empty();
+        }
+        AnswerCountTable counts = new AnswerCountTable();
+        long responseCount = answerIndexService.countMatching(surveyId, answerFilter, counts);
+        return surveyMapper.toSurveySummary(survey, responseCount, counts);
+    }
+
+    /**
+     * Build a contingency table between two questions from the survey's answer index.
+     * @return null if either question does not exist
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    @Override
+    public CrosstabDTO getSurveyCrosstab(Long surveyId, Long rowQuestionId, Long columnQuestionId) {
+        JpaQuestion rowQuestion = jpaSurveyDao.getQuestion(rowQuestionId);
+        JpaQuestion columnQuestion = jpaSurveyDao.getQuestion(columnQuestionId);
+        if (rowQuestion == null || columnQuestion == null) {
+            log.warn("Cannot build crosstab - question does not exist");
+            return null;
+        }
+        List<JpaAnswer> rowAnswers = getOrderedAnswers(rowQuestion);
+        List<JpaAnswer> columnAnswers = getOrderedAnswers(columnQuestion);
+
+        CrosstabDTO crosstab = new CrosstabDTO();
+        crosstab.setSurvey(surveyId);
+        crosstab.setRowQuestionId(rowQuestionId);
+        crosstab.setRowQuestion(rowQuestion.getText());
+        crosstab.setRowAnswers(toAnswerList(rowAnswers));
+        crosstab.setColumnQuestionId(columnQuestionId);
+        crosstab.setColumnQuestion(columnQuestion.getText());
+        crosstab.setColumnAnswers(toAnswerList(columnAnswers));
+        crosstab.setCounts(answerIndexService.crosstab(surveyId, rowQuestionId, toAnswerIds(rowAnswers),
+                columnQuestionId, toAnswerIds(columnAnswers)));
+        crosstab.setResponseCount(answerIndexService.getResponseCount(surveyId));
+        return crosstab;
+    }
+
+    /**
+     * Count the survey's responses per hour, day or week (UTC) of their last update from the hourly rollup buckets.
+     * Not read-only since buckets are built on first request for surveys answered before rollups existed.
+     * @return null if the survey does not exist
+     */
+    @Transactional
+    @Override
+    public ResponseRollupDTO getResponseRollup(Long surveyId, RollupInterval interval, Date from, Date to) {
+        JpaSurvey survey = jpaSurveyDao.getSurvey(surveyId);
+        if (survey == null) {
+            return null;
+        }
+        List<ResponseBucketDTO> buckets = new ArrayList<>();
+        ResponseBucketDTO bucket = null;
+        long responseCount = 0;
+        Calendar calendar = RollupInterval.newCalendar();
+        for (JpaResponseRollup rollup : jpaSurveyDao.getResponseRollups(surveyId, from, to)) {
+            if (rollup.getCount() <= 0) {
+                // Emptied when its responses were updated later
+                continue;
+            }
+            Date start = interval.bucketStart(rollup.getBucketStart(), calendar);
+            if (bucket == null || !bucket.getStart().equals(start)) {
+                bucket = new ResponseBucketDTO(start, 0);
+                buckets.add(bucket);
+            }
+            bucket.setCount(bucket.getCount() + rollup.getCount());
+            responseCount += rollup.getCount();
+        }
+
+        ResponseRollupDTO rollupDTO = new ResponseRollupDTO();
+        rollupDTO.setSurvey(surveyId);
+        rollupDTO.setInterval(interval);
+        rollupDTO.setResponseCount(responseCount);
+        rollupDTO.setBuckets(buckets);
+        return rollupDTO;
+    }
+
+    private List<JpaAnswer> getOrderedAnswers(JpaQuestion question) {
+        List<JpaQuestionAnswer> questionAnswers = new ArrayList<>();
+        if (question.getJpaQuestionAnswers() != null) {
+            questionAnswers.addAll(question.getJpaQuestionAnswers());
+        }
+        Collections.sort(questionAnswers, new Comparator<JpaQuestionAnswer>() {
+            @Override
+            public int compare(JpaQuestionAnswer qa1, JpaQuestionAnswer qa2) {
+                return Integer.compare(qa1.getSequence(), qa2.getSequence());
+            }
+        });
+        List<JpaAnswer> answers = new ArrayList<>(questionAnswers.size());
+        for (JpaQuestionAnswer qa : questionAnswers) {
+            answers.add(qa.getId().getJpaAnswer());
+        }
+        return answers;
+    }
+
+    private List<AnswerDTO> toAnswerList(List<JpaAnswer> answers) {
+        List<AnswerDTO> result = new ArrayList<>(answers.size());
+        for (JpaAnswer answer : answers) {
+            result.add(surveyMapper.toAnswer(answer));
+        }
+        return result;
+    }
+
+    private static long[] toAnswerIds(List<JpaAnswer> answers) {
+        long[] ids = new long[answers.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = answers.get(i).getId();
+        }
+        return ids;
+    }
+
+    /**
+     * Notify the {@link IResponseSaveListener}s of a saved response once the current transaction commits.
+     */
+    private void publishResponseSaved(JpaResponse jpaResponse, boolean created) {
+        final ResponseSaveEvent event = new ResponseSaveEvent(jpaResponse, created);
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                notifyResponseSaved(event);
+            }
+        });
+    }
+
+    /**
+     * Run the task once the current transaction commits, or immediately if there is no transaction.
+     */
+    private void afterCommit(final Runnable task) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            task.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                task.run();
+            }
+        });
+    }
+
+    private void notifyResponseSaved(ResponseSaveEvent event) {
+        for (IResponseSaveListener listener : responseSaveListeners) {
+            try {
+                listener.responseSaved(event);
+            } catch (RuntimeException e) {
+                log.error("Response save listener failed for " + event.toString(), e);
+            }
+        }
+    }
 }
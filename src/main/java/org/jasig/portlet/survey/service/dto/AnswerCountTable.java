@@ -0,0 +1,169 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.dto;
+
+import java.io.Serializable;
+
+/**
+ * Counts keyed by (question id, answer id), stored in an open-addressing hash table of primitive arrays.  Counting an
+ * answer allocates nothing once the table has grown to the number of distinct pairs, and pairs are compared by id so
+ * questions or answers that share text are never merged.
+ * <p>
+ * Not thread-safe; concurrent producers should count into their own tables and {@link #addAll} them.
+ *
+ * @since 1.0
+ */
+public class AnswerCountTable implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] questionIds;
+    private long[] answerIds;
+    private long[] counts;
+    private boolean[] occupied;
+    private int size;
+
+    public AnswerCountTable() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    /**
+     * @param expectedSize number of distinct (question, answer) pairs expected; the table grows as needed
+     */
+    public AnswerCountTable(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    public void increment(long questionId, long answerId) {
+        add(questionId, answerId, 1);
+    }
+
+    public void add(long questionId, long answerId, long delta) {
+        int slot = slotOf(questionId, answerId);
+        if (occupied[slot]) {
+            counts[slot] += delta;
+            return;
+        }
+        occupied[slot] = true;
+        questionIds[slot] = questionId;
+        answerIds[slot] = answerId;
+        counts[slot] = delta;
+        if (++size * 4 > occupied.length * 3) {
+            resize(occupied.length * 2);
+        }
+    }
+
+    public void addAll(AnswerCountTable other) {
+        for (int slot = 0; slot < other.capacity(); slot++) {
+            if (other.isOccupied(slot)) {
+                add(other.questionIds[slot], other.answerIds[slot], other.counts[slot]);
+            }
+        }
+    }
+
+    public long get(long questionId, long answerId) {
+        int slot = slotOf(questionId, answerId);
+        return occupied[slot] ? counts[slot] : 0;
+    }
+
+    /**
+     * @return number of distinct (question, answer) pairs counted
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Number of slots, for iterating with {@link #isOccupied(int)} and the slot accessors.
+     */
+    public int capacity() {
+        return occupied.length;
+    }
+
+    public boolean isOccupied(int slot) {
+        return occupied[slot];
+    }
+
+    public long questionIdAt(int slot) {
+        return questionIds[slot];
+    }
+
+    public long answerIdAt(int slot) {
+        return answerIds[slot];
+    }
+
+    public long countAt(int slot) {
+        return counts[slot];
+    }
+
+    private int slotOf(long questionId, long answerId) {
+        int mask = occupied.length - 1;
+        int slot = hash(questionId, answerId) & mask;
+        while (occupied[slot] && (questionIds[slot] != questionId || answerIds[slot] != answerId)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int hash(long questionId, long answerId) {
+        long h = questionId * 0x9E3779B97F4A7C15L + answerId;
+        h *= 0xC2B2AE3D27D4EB4FL;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void allocate(int capacity) {
+        questionIds = new long[capacity];
+        answerIds = new long[capacity];
+        counts = new long[capacity];
+        occupied = new boolean[capacity];
+        size = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] oldQuestionIds = questionIds;
+        long[] oldAnswerIds = answerIds;
+        long[] oldCounts = counts;
+        boolean[] oldOccupied = occupied;
+        allocate(capacity);
+        for (int slot = 0; slot < oldOccupied.length; slot++) {
+            if (oldOccupied[slot]) {
+                add(oldQuestionIds[slot], oldAnswerIds[slot], oldCounts[slot]);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int slot = 0; slot < occupied.length; slot++) {
+            if (occupied[slot]) {
+                if (sb.length() > 1) {
+                    sb.append(", ");
+                }
+                sb.append(questionIds[slot]).append('/').append(answerIds[slot]).append('=').append(counts[slot]);
+            }
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.jsondoc.core.annotation.ApiObject;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Data Transfer Object of a survey response summary estimated from a uniform random sample of the responses.  The
+ * answer counts are the sample proportions scaled to the number of responses; each comes with the bounds of its
+ * confidence interval.
+ *
+ * @since 1.1
+ */
+@ApiObject(name = "ApproximateSurveySummaryDTO")
+public class ApproximateSurveySummaryDTO extends SurveySummaryDTO {
+    private static final long serialVersionUID = 1L;
+
+    private long sampleSize;
+
+    private double confidenceLevel;
+
+    @JsonIgnore
+    private AnswerCountTable lowerBounds;
+
+    @JsonIgnore
+    private AnswerCountTable upperBounds;
+
+    /**
+     * @param estimate summary holding the estimated counts and the exact number of responses
+     * @param sampleSize number of responses sampled
+     * @param confidenceLevel confidence level of the intervals, e.g. 0.95
+     * @param lowerBounds lower bound of the estimated count per (question id, answer id)
+     * @param upperBounds upper bound of the estimated count per (question id, answer id)
+     */
+    public ApproximateSurveySummaryDTO(SurveySummaryDTO estimate, long sampleSize, double confidenceLevel,
+            AnswerCountTable lowerBounds, AnswerCountTable upperBounds) {
+        super(estimate);
+        this.sampleSize = sampleSize;
+        this.confidenceLevel = confidenceLevel;
+        this.lowerBounds = lowerBounds;
+        this.upperBounds = upperBounds;
+    }
+
+    public long getSampleSize() {
+        return sampleSize;
+    }
+
+    public double getConfidenceLevel() {
+        return confidenceLevel;
+    }
+
+    /**
+     * Confidence interval of each estimated count as [lower, upper], keyed like {@link #getAnswerCountsById()}.
+     */
+    public Map<Long, Map<Long, long[]>> getAnswerCountIntervalsById() {
+        Map<Long, Map<Long, long[]>> result = new TreeMap<>();
+        for (Map.Entry<Long, Map<Long, Long>> question : getAnswerCountsById().entrySet()) {
+            Map<Long, long[]> answers = new TreeMap<>();
+            for (Long answerId : question.getValue().keySet()) {
+                answers.put(answerId, new long[] { lowerBounds.get(question.getKey(), answerId),
+                        upperBounds.get(question.getKey(), answerId) });
+            }
+            result.put(question.getKey(), answers);
+        }
+        return result;
+    }
+}
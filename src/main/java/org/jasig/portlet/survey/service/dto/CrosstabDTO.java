@@ -0,0 +1,133 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.dto;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.jsondoc.core.annotation.ApiObject;
+import org.jsondoc.core.annotation.ApiObjectField;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Data Transfer Object of a contingency table between two questions of a survey: how many responses selected each
+ * combination of an answer to the row question and an answer to the column question.
+ *
+ * @since 1.0
+ */
+@ApiObject(name = "CrosstabDTO")
+public class CrosstabDTO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @ApiObjectField
+    private long survey;
+    @ApiObjectField
+    private long responseCount;
+    @ApiObjectField
+    private long rowQuestionId;
+    @ApiObjectField
+    private String rowQuestion;
+    @ApiObjectField(description = "Answers of the row question, in sequence")
+    private List<AnswerDTO> rowAnswers;
+    @ApiObjectField
+    private long columnQuestionId;
+    @ApiObjectField
+    private String columnQuestion;
+    @ApiObjectField(description = "Answers of the column question, in sequence")
+    private List<AnswerDTO> columnAnswers;
+    @ApiObjectField(description = "Response counts indexed by row answer, then column answer")
+    private long[][] counts;
+
+    public long getSurvey() {
+        return survey;
+    }
+
+    public long getResponseCount() {
+        return responseCount;
+    }
+
+    public long getRowQuestionId() {
+        return rowQuestionId;
+    }
+
+    public String getRowQuestion() {
+        return rowQuestion;
+    }
+
+    public List<AnswerDTO> getRowAnswers() {
+        return rowAnswers;
+    }
+
+    public long getColumnQuestionId() {
+        return columnQuestionId;
+    }
+
+    public String getColumnQuestion() {
+        return columnQuestion;
+    }
+
+    public List<AnswerDTO> getColumnAnswers() {
+        return columnAnswers;
+    }
+
+    public long[][] getCounts() {
+        return counts;
+    }
+
+    public void setSurvey(long survey) {
+        this.survey = survey;
+    }
+
+    public void setResponseCount(long responseCount) {
+        this.responseCount = responseCount;
+    }
+
+    public void setRowQuestionId(long rowQuestionId) {
+        this.rowQuestionId = rowQuestionId;
+    }
+
+    public void setRowQuestion(String rowQuestion) {
+        this.rowQuestion = rowQuestion;
+    }
+
+    public void setRowAnswers(List<AnswerDTO> rowAnswers) {
+        this.rowAnswers = rowAnswers;
+    }
+
+    public void setColumnQuestionId(long columnQuestionId) {
+        this.columnQuestionId = columnQuestionId;
+    }
+
+    public void setColumnQuestion(String columnQuestion) {
+        this.columnQuestion = columnQuestion;
+    }
+
+    public void setColumnAnswers(List<AnswerDTO> columnAnswers) {
+        this.columnAnswers = columnAnswers;
+    }
+
+    public void setCounts(long[][] counts) {
+        this.counts = counts;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
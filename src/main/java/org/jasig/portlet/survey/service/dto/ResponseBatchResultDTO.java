@@ -0,0 +1,93 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.dto;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.jsondoc.core.annotation.ApiObject;
+import org.jsondoc.core.annotation.ApiObjectField;
+
+import java.io.Serializable;
+
+/**
+ * Data Transfer Object of the outcome of one response of a batch submission.
+ *
+ * @since 1.1
+ */
+@ApiObject(name = "ResponseBatchResultDTO")
+public class ResponseBatchResultDTO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String CREATED = "CREATED";
+    public static final String REJECTED = "REJECTED";
+
+    @ApiObjectField(description = "Position of the response in the submitted list")
+    private int index;
+    @ApiObjectField(description = "CREATED or REJECTED")
+    private String status;
+    @ApiObjectField(description = "Id of the created response")
+    private Long responseId;
+    @ApiObjectField(description = "Reason the response was rejected")
+    private String message;
+
+    public ResponseBatchResultDTO() {}
+
+    public ResponseBatchResultDTO(int index, String status, Long responseId, String message) {
+        this.index = index;
+        this.status = status;
+        this.responseId = responseId;
+        this.message = message;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Long getResponseId() {
+        return responseId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public void setResponseId(Long responseId) {
+        this.responseId = responseId;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.dto;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.jsondoc.core.annotation.ApiObject;
+import org.jsondoc.core.annotation.ApiObjectField;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Data Transfer Object of the number of responses last updated within one bucket of a {@link ResponseRollupDTO}.
+ *
+ * @since 1.0
+ */
+@ApiObject(name = "ResponseBucketDTO")
+public class ResponseBucketDTO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @ApiObjectField
+    private Date start;
+    @ApiObjectField
+    private long count;
+
+    public ResponseBucketDTO() {}
+
+    public ResponseBucketDTO(Date start, long count) {
+        this.start = start;
+        this.count = count;
+    }
+
+    public Date getStart() {
+        return start;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setStart(Date start) {
+        this.start = start;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
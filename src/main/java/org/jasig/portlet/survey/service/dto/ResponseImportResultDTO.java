@@ -0,0 +1,86 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.dto;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.jsondoc.core.annotation.ApiObject;
+import org.jsondoc.core.annotation.ApiObjectField;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Data Transfer Object of the outcome of a bulk import of responses.  Only the first {@link #MAX_ERRORS} errors are
+ * kept.
+ *
+ * @since 1.1
+ */
+@ApiObject(name = "ResponseImportResultDTO")
+public class ResponseImportResultDTO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int MAX_ERRORS = 100;
+
+    @ApiObjectField(description = "Number of rows read")
+    private long rows;
+    @ApiObjectField(description = "Number of responses created")
+    private long created;
+    @ApiObjectField(description = "Number of responses rejected")
+    private long rejected;
+    @ApiObjectField(description = "Reasons responses were rejected")
+    private List<String> errors = new ArrayList<>();
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public List<String> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    public void setRows(long rows) {
+        this.rows = rows;
+    }
+
+    public void addCreated(long count) {
+        created += count;
+    }
+
+    public void addRejected(String error) {
+        rejected++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(error);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.dto;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.jsondoc.core.annotation.ApiObject;
+import org.jsondoc.core.annotation.ApiObjectField;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Data Transfer Object of the submission activity of a survey: the number of responses last updated within each
+ * hour, day or week.  Buckets without responses are omitted.
+ *
+ * @since 1.0
+ */
+@ApiObject(name = "ResponseRollupDTO")
+public class ResponseRollupDTO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @ApiObjectField
+    private long survey;
+    @ApiObjectField
+    private RollupInterval interval;
+    @ApiObjectField(description = "Number of responses in the returned buckets")
+    private long responseCount;
+    @ApiObjectField(description = "Buckets in chronological order")
+    private List<ResponseBucketDTO> buckets;
+
+    public long getSurvey() {
+        return survey;
+    }
+
+    public RollupInterval getInterval() {
+        return interval;
+    }
+
+    public long getResponseCount() {
+        return responseCount;
+    }
+
+    public List<ResponseBucketDTO> getBuckets() {
+        return buckets;
+    }
+
+    public void setSurvey(long survey) {
+        this.survey = survey;
+    }
+
+    public void setInterval(RollupInterval interval) {
+        this.interval = interval;
+    }
+
+    public void setResponseCount(long responseCount) {
+        this.responseCount = responseCount;
+    }
+
+    public void setBuckets(List<ResponseBucketDTO> buckets) {
+        this.buckets = buckets;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.dto;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Width of the buckets of a {@link ResponseRollupDTO}.  Days and weeks start at midnight UTC, weeks on Monday: the
+ * hourly buckets they are built from are hours since the epoch, which only line up with local midnight in zones
+ * a whole number of hours from UTC.
+ *
+ * @since 1.0
+ */
+public enum RollupInterval {
+    HOUR,
+    DAY,
+    WEEK;
+
+    /**
+     * @return a calendar for {@link #bucketStart(Date, Calendar)}
+     */
+    public static Calendar newCalendar() {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.setFirstDayOfWeek(Calendar.MONDAY);
+        return calendar;
+    }
+
+    /**
+     * @param calendar calendar from {@link #newCalendar()} used for the computation; its time is overwritten
+     * @return start of the bucket holding the specified hour
+     */
+    public Date bucketStart(Date hour, Calendar calendar) {
+        if (this == HOUR) {
+            return hour;
+        }
+        calendar.setTime(hour);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        if (this == WEEK) {
+            calendar.set(Calendar.DAY_OF_WEEK, calendar.getFirstDayOfWeek());
+        }
+        return calendar.getTime();
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.dto;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.jasig.portlet.survey.PublishedState;
+import org.jsondoc.core.annotation.ApiObject;
+import org.jsondoc.core.annotation.ApiObjectField;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Data Transfer Object of a survey in a listing: its identity and state, without questions.
+ *
+ * @since 1.0
+ */
+@ApiObject(name = "SurveyListItemDTO")
+public class SurveyListItemDTO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @ApiObjectField
+    private long id;
+    @ApiObjectField
+    private String canonicalName;
+    @ApiObjectField
+    private String title;
+    @ApiObjectField
+    private String description;
+    @ApiObjectField
+    private PublishedState status;
+    @ApiObjectField
+    private Date lastUpdateDate;
+
+    public long getId() {
+        return id;
+    }
+
+    public String getCanonicalName() {
+        return canonicalName;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public PublishedState getStatus() {
+        return status;
+    }
+
+    public Date getLastUpdateDate() {
+        return lastUpdateDate;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public void setCanonicalName(String canonicalName) {
+        this.canonicalName = canonicalName;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public void setStatus(PublishedState status) {
+        this.status = status;
+    }
+
+    public void setLastUpdateDate(Date lastUpdateDate) {
+        this.lastUpdateDate = lastUpdateDate;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
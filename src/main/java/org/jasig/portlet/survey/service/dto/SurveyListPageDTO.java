@@ -0,0 +1,63 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.dto;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.jsondoc.core.annotation.ApiObject;
+import org.jsondoc.core.annotation.ApiObjectField;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Data Transfer Object of one page of a survey listing.  Pages are keyed by survey id: the next page is requested
+ * with <code>after</code> set to {@link #getNextAfter()}, so pages stay consistent while surveys are added.
+ *
+ * @since 1.0
+ */
+@ApiObject(name = "SurveyListPageDTO")
+public class SurveyListPageDTO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @ApiObjectField(description = "Surveys in ascending id order")
+    private List<SurveyListItemDTO> surveys;
+    @ApiObjectField(description = "Value of after for the next page; null on the last page")
+    private Long nextAfter;
+
+    public List<SurveyListItemDTO> getSurveys() {
+        return surveys;
+    }
+
+    public Long getNextAfter() {
+        return nextAfter;
+    }
+
+    public void setSurveys(List<SurveyListItemDTO> surveys) {
+        this.surveys = surveys;
+    }
+
+    public void setNextAfter(Long nextAfter) {
+        this.nextAfter = nextAfter;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
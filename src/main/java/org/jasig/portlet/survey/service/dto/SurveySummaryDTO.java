@@ -18,22 +18,24 @@
  */
 package org.jasig.portlet.survey.service.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
-import org.jasig.portlet.survey.service.jpa.JpaAnswer;
-import org.jasig.portlet.survey.service.jpa.JpaResponse;
-import org.jasig.portlet.survey.service.jpa.JpaResponseAnswer;
-import org.jasig.portlet.survey.service.jpa.JpaResponseAnswerPK;
 import org.jsondoc.core.annotation.ApiObject;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * Data Transfer Object of survey response summary.
+ * Counts are held by question and answer id; question and answer text is only attached when the summary is
+ * serialized.
  *
  * @author Benito J. Gonzalez <bgonzalez@unicon.net>
  * @since 1.1
@@ -43,46 +45,104 @@ public class SurveySummaryDTO implements Serializable {
     private static final long serialVersionUID = 1L;
 
     private long responseCount = 0;
-    private Map<String, Map<String, Long>> answerCounts;
-
-    //public void setResponses(List<JpaResponse> responses) {
-    public SurveySummaryDTO(List<JpaResponse> responses) {
-        //private List<JpaResponse> responses = new ArrayList<>();
-        // set response collection
-        //this.responses.clear();
-        //this.responses.addAll(responses);
-
-        // calculate summary info
-        this.responseCount = responses.size();
-        answerCounts = new HashMap<>();
-        for (JpaResponse response : responses) {
-            for (JpaResponseAnswer respAnswer : response.getJpaResponseAnswers()) {
-                JpaResponseAnswerPK pk = respAnswer.getId();
-                String question = respAnswer.getId().getJpaQuestion().getText();
-                Map<String, Long> answerCount = answerCounts.get(question);
-                if (answerCount == null) {
-                    answerCount = new HashMap<>();
-                    answerCounts.put(question, answerCount);
-                }
-                for (JpaAnswer answer : respAnswer.getAnswer()) {
-                    Long count = answerCount.get(answer.getText());
-                    if (count == null) {
-                        count = new Long(1);
-                    } else {
-                        ++count;
-                    }
-                    answerCount.put(answer.getText(), count);
-                }
-            }
-        }
+
+    @JsonIgnore
+    private AnswerCountTable counts;
+
+    @JsonIgnore
+    private Map<Long, String> questionText;
+
+    @JsonIgnore
+    private Map<Long, String> answerText;
+
+    /**
+     * @param responseCount number of responses summarized
+     * @param counts selections per (question id, answer id)
+     * @param questionText question text by question id; pairs whose question is missing are not reported
+     * @param answerText answer text by answer id; pairs whose answer is missing are not reported
+     */
+    public SurveySummaryDTO(long responseCount, AnswerCountTable counts, Map<Long, String> questionText,
+            Map<Long, String> answerText) {
+        this.responseCount = responseCount;
+        this.counts = counts;
+        this.questionText = questionText;
+        this.answerText = answerText;
+    }
+
+    /**
+     * Copy the counts and text of another summary.
+     */
+    protected SurveySummaryDTO(SurveySummaryDTO other) {
+        this(other.responseCount, other.counts, other.questionText, other.answerText);
+    }
+
+    /**
+     * @return a summary of no responses
+     */
+    public static SurveySummaryDTO empty() {
+        return new SurveySummaryDTO(0, new AnswerCountTable(), Collections.<Long, String>emptyMap(),
+                Collections.<Long, String>emptyMap());
     }
 
     public long getResponseCount() {
         return this.responseCount;
     }
 
+    @JsonIgnore
+    public AnswerCountTable getCounts() {
+        return this.counts;
+    }
+
+    /**
+     * Counts keyed by question text and answer text.  Should two questions (or two answers of a question) share
+     * text, the id is appended to the later one so neither count is lost.
+     */
     public Map<String, Map<String, Long>> getAnswerCounts() {
-        return this.answerCounts;
+        Map<Long, Map<Long, Long>> byId = getAnswerCountsById();
+        Map<String, Map<String, Long>> result = new HashMap<>();
+        Set<String> questionKeys = new HashSet<>();
+        for (Map.Entry<Long, Map<Long, Long>> question : byId.entrySet()) {
+            Map<String, Long> answers = new HashMap<>();
+            Set<String> answerKeys = new HashSet<>();
+            for (Map.Entry<Long, Long> answer : question.getValue().entrySet()) {
+                answers.put(uniqueKey(answerText.get(answer.getKey()), answer.getKey(), answerKeys), answer.getValue());
+            }
+            result.put(uniqueKey(questionText.get(question.getKey()), question.getKey(), questionKeys), answers);
+        }
+        return result;
+    }
+
+    /**
+     * Counts keyed by question id, then answer id, in id order.
+     */
+    public Map<Long, Map<Long, Long>> getAnswerCountsById() {
+        Map<Long, Map<Long, Long>> result = new TreeMap<>();
+        for (int slot = 0; slot < counts.capacity(); slot++) {
+            if (!counts.isOccupied(slot) || counts.countAt(slot) <= 0) {
+                continue;
+            }
+            long questionId = counts.questionIdAt(slot);
+            long answerId = counts.answerIdAt(slot);
+            if (!questionText.containsKey(questionId) || !answerText.containsKey(answerId)) {
+                continue;
+            }
+            Map<Long, Long> answers = result.get(questionId);
+            if (answers == null) {
+                answers = new TreeMap<>();
+                result.put(questionId, answers);
+            }
+            answers.put(answerId, counts.countAt(slot));
+        }
+        return result;
+    }
+
+    private static String uniqueKey(String text, long id, Set<String> used) {
+        String key = text;
+        if (!used.add(key)) {
+            key = text + " (" + id + ")";
+            used.add(key);
+        }
+        return key;
     }
 
     @Override
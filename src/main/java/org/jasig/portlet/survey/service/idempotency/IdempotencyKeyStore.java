@@ -0,0 +1,112 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.idempotency;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.lang.Validate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Remembers the results of recent requests by client-supplied idempotency key, so a retried or repeated request
+ * (double-click, browser retry) gets the original result instead of being performed again.  A request that arrives
+ * while the first one with its key is still in progress waits for it and shares its result.  Requests that fail are
+ * not remembered and may be retried.  A hash of each request is kept with its key, and a key reused for a different
+ * request is rejected rather than answered with the result of the first.
+ * <p>
+ * Keys are held for a short, configurable time and their number is bounded; they are local to this node.
+ *
+ * @since 1.0
+ */
+@Service
+public class IdempotencyKeyStore {
+    public static final int MAX_KEY_LENGTH = 255;
+
+    @Value("${survey.idempotency.maxKeys:10000}")
+    private long maxKeys;
+
+    @Value("${survey.idempotency.expirySeconds:600}")
+    private long expirySeconds;
+
+    private Cache<String, KeyedResult> results;
+
+    @PostConstruct
+    public void init() {
+        results = CacheBuilder.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(expirySeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Perform the request unless a request with the same key was performed recently in the same scope.
+     * @param scope what the key applies to, e.g. the user and operation, so keys of different clients cannot clash
+     * @param key client-supplied idempotency key
+     * @param requestContent canonical form of the request, equal for requests that must have the same result
+     * @param request performs the request; its result is remembered if it returns normally
+     * @return the result of the request, or of the earlier request with the same key
+     * @throws IllegalArgumentException if the key was used recently for a request with different content
+     * @throws Exception thrown by the request
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String scope, String key, String requestContent, final Callable<T> request) throws Exception {
+        Validate.notEmpty(key, "Empty idempotency key");
+        Validate.isTrue(key.length() <= MAX_KEY_LENGTH, "Idempotency key longer than " + MAX_KEY_LENGTH);
+        final HashCode requestHash = Hashing.sha1().hashString(requestContent, Charsets.UTF_8);
+        KeyedResult keyedResult;
+        try {
+            keyedResult = results.get(scope + "\n" + key, new Callable<KeyedResult>() {
+                @Override
+                public KeyedResult call() throws Exception {
+                    return new KeyedResult(requestHash, request.call());
+                }
+            });
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } catch (ExecutionError e) {
+            throw (Error) e.getCause();
+        }
+        Validate.isTrue(keyedResult.requestHash.equals(requestHash),
+                "Idempotency key " + key + " was used for a different request");
+        return (T) keyedResult.result;
+    }
+
+    private static final class KeyedResult {
+        private final HashCode requestHash;
+        private final Object result;
+
+        private KeyedResult(HashCode requestHash, Object result) {
+            this.requestHash = requestHash;
+            this.result = result;
+        }
+    }
+}
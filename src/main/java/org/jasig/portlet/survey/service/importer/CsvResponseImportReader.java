@@ -0,0 +1,105 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.Validate;
+
+/**
+ * Reads response import rows from CSV:  <code>user,survey,question,answer[,answer...]</code>, one answer canonical
+ * name per column after the question.  Fields may be quoted, with quotes doubled inside them, but may not span lines.
+ * Blank lines and a header line starting with <code>user</code> are skipped.
+ *
+ * @since 1.1
+ */
+public class CsvResponseImportReader implements IResponseImportReader {
+    private static final String HEADER = "user";
+
+    private final BufferedReader reader;
+    private long line;
+
+    public CsvResponseImportReader(Reader reader) {
+        this.reader = new BufferedReader(reader);
+    }
+
+    @Override
+    public ResponseImportRow read() throws IOException {
+        String text;
+        do {
+            text = reader.readLine();
+            if (text == null) {
+                return null;
+            }
+            line++;
+        } while (StringUtils.isBlank(text));
+
+        List<String> fields = parse(text);
+        if (line == 1 && HEADER.equalsIgnoreCase(fields.get(0))) {
+            return read();
+        }
+        Validate.isTrue(fields.size() >= 3, "Line " + line + ": expected user, survey, question and answers");
+        List<String> answers = new ArrayList<>();
+        for (String answer : fields.subList(3, fields.size())) {
+            if (!answer.isEmpty()) {
+                answers.add(answer);
+            }
+        }
+        return new ResponseImportRow(line, fields.get(0), fields.get(1), fields.get(2), answers);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private List<String> parse(String text) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        Validate.isTrue(!quoted, "Line " + line + ": unterminated quoted field");
+        fields.add(field.toString().trim());
+        return fields;
+    }
+}
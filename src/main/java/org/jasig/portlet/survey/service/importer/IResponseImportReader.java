@@ -0,0 +1,36 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads the rows of a response import one at a time, so files of any size can be imported.
+ *
+ * @since 1.1
+ */
+public interface IResponseImportReader extends Closeable {
+
+    /**
+     * @return the next row, or null at the end of the file
+     * @throws IllegalArgumentException if the next line is not a valid row; reading may continue with the line after
+     */
+    ResponseImportRow read() throws IOException;
+}
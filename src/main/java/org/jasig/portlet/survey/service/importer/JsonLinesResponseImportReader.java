@@ -0,0 +1,89 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.Validate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads response import rows from JSON lines, one object per line:
+ * <code>{"user": ..., "survey": ..., "question": ..., "answers": [...]}</code>, with survey, question and answers
+ * given by canonical name.  A single answer may be given as <code>"answer"</code> instead.  Blank lines are skipped.
+ *
+ * @since 1.1
+ */
+public class JsonLinesResponseImportReader implements IResponseImportReader {
+    private final BufferedReader reader;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private long line;
+
+    public JsonLinesResponseImportReader(Reader reader) {
+        this.reader = new BufferedReader(reader);
+    }
+
+    @Override
+    public ResponseImportRow read() throws IOException {
+        String text;
+        do {
+            text = reader.readLine();
+            if (text == null) {
+                return null;
+            }
+            line++;
+        } while (StringUtils.isBlank(text));
+
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(text);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Line " + line + ": " + e.getMessage());
+        }
+        Validate.isTrue(node != null && node.isObject(), "Line " + line + ": expected a JSON object");
+        List<String> answers = new ArrayList<>();
+        if (node.has("answers")) {
+            for (JsonNode answer : node.get("answers")) {
+                answers.add(answer.asText());
+            }
+        } else if (node.has("answer")) {
+            answers.add(node.get("answer").asText());
+        }
+        return new ResponseImportRow(line, text(node, "user"), text(node, "survey"), text(node, "question"),
+                answers);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        Validate.isTrue(value != null && value.isValueNode(), "Line " + line + ": missing " + field);
+        return value.asText();
+    }
+}
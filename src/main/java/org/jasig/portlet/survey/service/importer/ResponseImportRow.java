@@ -0,0 +1,73 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.importer;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * One row of a response import: a user's answers to one question of a survey, all by canonical name.
+ *
+ * @since 1.1
+ */
+public class ResponseImportRow {
+    private final long line;
+    private final String user;
+    private final String survey;
+    private final String question;
+    private final List<String> answers;
+
+    public ResponseImportRow(long line, String user, String survey, String question, List<String> answers) {
+        this.line = line;
+        this.user = user;
+        this.survey = survey;
+        this.question = question;
+        this.answers = answers;
+    }
+
+    /**
+     * @return line of the file the row was read from
+     */
+    public long getLine() {
+        return line;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public String getSurvey() {
+        return survey;
+    }
+
+    public String getQuestion() {
+        return question;
+    }
+
+    public List<String> getAnswers() {
+        return Collections.unmodifiableList(answers);
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
@@ -0,0 +1,249 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.importer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jasig.portlet.survey.mvc.service.ISurveyDataService;
+import org.jasig.portlet.survey.service.dto.QuestionAnswerDTO;
+import org.jasig.portlet.survey.service.dto.ResponseAnswerDTO;
+import org.jasig.portlet.survey.service.dto.ResponseBatchResultDTO;
+import org.jasig.portlet.survey.service.dto.ResponseDTO;
+import org.jasig.portlet.survey.service.dto.ResponseImportResultDTO;
+import org.jasig.portlet.survey.service.dto.SurveyDTO;
+import org.jasig.portlet.survey.service.dto.SurveyQuestionDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Imports responses, e.g. historical data migrated from another system, from a stream of rows naming the user, survey,
+ * question and answers by canonical name.  The rows of a response (same user and survey) must be adjacent.
+ * <p>
+ * Rows are read one at a time and canonical names are resolved through a dictionary built once per survey, so the
+ * file is never held in memory.  Responses are created in chunks of <code>survey.import.chunkSize</code>, one
+ * transaction per chunk, through {@link ISurveyDataService#createResponses}, which batches the inserts and clears the
+ * persistence context as it goes; a failure therefore only loses the chunk it happens in.  A response with a row that
+ * cannot be resolved, or from a user who already responded, is rejected and reported.  Only the respondents of the
+ * current chunk are held to detect non-adjacent rows; a user who responded in an earlier chunk is found in the
+ * database.
+ *
+ * @since 1.1
+ */
+@Service
+public class ResponseImportService {
+    @Autowired
+    private ISurveyDataService dataService;
+
+    @Value("${survey.import.chunkSize:500}")
+    private int chunkSize;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    public ResponseImportResultDTO importResponses(IResponseImportReader reader) throws IOException {
+        ResponseImportResultDTO result = new ResponseImportResultDTO();
+        Map<String, SurveyDictionary> dictionaries = new HashMap<>();
+        // Respondents of the current chunk only, so memory does not grow with the file
+        Set<String> respondents = new HashSet<>();
+        List<ResponseDTO> chunk = new ArrayList<>(chunkSize);
+        List<Long> chunkLines = new ArrayList<>(chunkSize);
+
+        PendingResponse pending = null;
+        long rows = 0;
+        while (true) {
+            ResponseImportRow row;
+            try {
+                row = reader.read();
+            } catch (IllegalArgumentException e) {
+                rows++;
+                // The row cannot be attributed to a response, so the response being read is rejected
+                if (pending != null) {
+                    pending.error = e.getMessage();
+                } else {
+                    result.addRejected(e.getMessage());
+                }
+                continue;
+            }
+            if (row != null) {
+                rows++;
+            }
+            if (pending != null && (row == null || !pending.isFor(row))) {
+                if (pending.error != null) {
+                    result.addRejected(pending.error);
+                } else {
+                    chunk.add(pending.toResponse());
+                    chunkLines.add(pending.line);
+                }
+                pending = null;
+                if (chunk.size() == chunkSize || (row == null && !chunk.isEmpty())) {
+                    createResponses(chunk, chunkLines, result);
+                    // From here on, createResponses rejects respondents of earlier chunks, which are stored
+                    respondents.clear();
+                }
+            }
+            if (row == null) {
+                break;
+            }
+            if (pending == null) {
+                pending = new PendingResponse(row, getDictionary(dictionaries, row.getSurvey()));
+                if (!respondents.add(row.getSurvey() + "\n" + row.getUser())) {
+                    pending.error = "Line " + row.getLine() + ": rows of user " + row.getUser() + " for survey "
+                            + row.getSurvey() + " are not adjacent";
+                }
+            }
+            pending.add(row);
+        }
+        result.setRows(rows);
+        log.info("Imported {} rows: {} responses created, {} rejected", rows, result.getCreated(),
+                result.getRejected());
+        return result;
+    }
+
+    private void createResponses(List<ResponseDTO> chunk, List<Long> chunkLines, ResponseImportResultDTO result) {
+        try {
+            for (ResponseBatchResultDTO created : dataService.createResponses(chunk)) {
+                if (ResponseBatchResultDTO.CREATED.equals(created.getStatus())) {
+                    result.addCreated(1);
+                } else {
+                    result.addRejected("Line " + chunkLines.get(created.getIndex()) + ": " + created.getMessage());
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to import " + chunk.size() + " responses starting at line " + chunkLines.get(0), e);
+            for (Long line : chunkLines) {
+                result.addRejected("Line " + line + ": " + e.getMessage());
+            }
+        }
+        chunk.clear();
+        chunkLines.clear();
+    }
+
+    /**
+     * @return the dictionary of the survey, or null if there is no such survey
+     */
+    private SurveyDictionary getDictionary(Map<String, SurveyDictionary> dictionaries, String surveyName) {
+        if (!dictionaries.containsKey(surveyName)) {
+            SurveyDTO survey = dataService.getSurveyByName(surveyName);
+            dictionaries.put(surveyName, survey == null ? null : new SurveyDictionary(survey));
+        }
+        return dictionaries.get(surveyName);
+    }
+
+    /**
+     * Question and answer ids of a survey by canonical name.
+     */
+    private static final class SurveyDictionary {
+        private final long surveyId;
+        private final Map<String, Long> questionIds = new HashMap<>();
+        private final Map<Long, Map<String, Long>> answerIds = new HashMap<>();
+        private final Map<Long, Boolean> multiple = new HashMap<>();
+
+        private SurveyDictionary(SurveyDTO survey) {
+            surveyId = survey.getId();
+            for (SurveyQuestionDTO surveyQuestion : survey.getSurveyQuestions()) {
+                long questionId = surveyQuestion.getQuestion().getId();
+                if (surveyQuestion.getQuestion().getCanonicalName() != null) {
+                    questionIds.put(surveyQuestion.getQuestion().getCanonicalName(), questionId);
+                }
+                multiple.put(questionId, surveyQuestion.getNumAllowedAnswers() > 1);
+                Map<String, Long> answers = new HashMap<>();
+                if (surveyQuestion.getQuestion().getQuestionAnswers() != null) {
+                    for (QuestionAnswerDTO qa : surveyQuestion.getQuestion().getQuestionAnswers()) {
+                        if (qa.getCanonicalName() != null) {
+                            answers.put(qa.getCanonicalName(), qa.getAnswer().getId());
+                        }
+                    }
+                }
+                answerIds.put(questionId, answers);
+            }
+        }
+    }
+
+    /**
+     * The rows read so far of a response.
+     */
+    private static final class PendingResponse {
+        private final String user;
+        private final String survey;
+        private final long line;
+        private final SurveyDictionary dictionary;
+        private final Map<Long, ResponseAnswerDTO> answers = new LinkedHashMap<>();
+        private String error;
+
+        private PendingResponse(ResponseImportRow row, SurveyDictionary dictionary) {
+            this.user = row.getUser();
+            this.survey = row.getSurvey();
+            this.line = row.getLine();
+            this.dictionary = dictionary;
+            if (dictionary == null) {
+                error = "Line " + row.getLine() + ": no survey " + survey;
+            }
+        }
+
+        private boolean isFor(ResponseImportRow row) {
+            return user.equals(row.getUser()) && survey.equals(row.getSurvey());
+        }
+
+        private void add(ResponseImportRow row) {
+            if (error != null) {
+                return;
+            }
+            Long questionId = dictionary.questionIds.get(row.getQuestion());
+            if (questionId == null) {
+                error = "Line " + row.getLine() + ": no question " + row.getQuestion() + " in survey " + survey;
+                return;
+            }
+            ResponseAnswerDTO answer = answers.get(questionId);
+            if (answer == null) {
+                answer = new ResponseAnswerDTO();
+                answer.setQuestion(questionId);
+                answer.setMultiple(dictionary.multiple.get(questionId));
+                answers.put(questionId, answer);
+            }
+            for (String answerName : row.getAnswers()) {
+                Long answerId = dictionary.answerIds.get(questionId).get(answerName);
+                if (answerId == null) {
+                    error = "Line " + row.getLine() + ": no answer " + answerName + " for question "
+                            + row.getQuestion();
+                    return;
+                }
+                answer.addAnswerId(answerId);
+            }
+        }
+
+        private ResponseDTO toResponse() {
+            ResponseDTO response = new ResponseDTO();
+            response.setUser(user);
+            response.setSurvey(dictionary.surveyId);
+            for (ResponseAnswerDTO answer : answers.values()) {
+                response.addAnswer(answer);
+            }
+            return response;
+        }
+    }
+}
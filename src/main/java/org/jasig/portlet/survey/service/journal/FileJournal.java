@@ -0,0 +1,383 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.journal;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only journal of opaque records kept in a directory of segment files.  Each record is numbered with a
+ * sequence number and written with its length and a CRC so a record torn by a crash is detected on replay.
+ * <p>
+ * Durability is decoupled from appending: {@link #append} only writes, and {@link #sync} forces the segment to disk.
+ * Concurrent callers of {@link #sync} share a single force, so the cost of forcing is spread over every record
+ * written since the previous one (group commit).
+ * <p>
+ * Consumers record the sequence number up to which they have applied the records with {@link #checkpoint}; segments
+ * holding only older records are deleted and {@link #open} only replays newer records.  A journal that retains its
+ * segments keeps them after a checkpoint instead, as a log of every record ever written that {@link #replay} can
+ * read again.
+ *
+ * @since 1.0
+ */
+public class FileJournal implements Closeable {
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    /**
+     * Record header: payload length, sequence number and payload CRC.
+     */
+    private static final int HEADER_BYTES = 4 + 8 + 8;
+
+    private final File directory;
+    private final long segmentBytes;
+    private final boolean retainSegments;
+
+    private final Object appendLock = new Object();
+    private final Object syncLock = new Object();
+
+    // Guarded by appendLock
+    private FileChannel segment;
+    private File segmentFile;
+    private long segmentSize;
+    private long nextSequence;
+
+    private final AtomicLong syncedSequence = new AtomicLong();
+    private volatile long checkpointSequence;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    /**
+     * @param directory directory holding the segments; created if missing
+     * @param segmentBytes size after which a new segment is started
+     */
+    public FileJournal(File directory, long segmentBytes) {
+        this(directory, segmentBytes, false);
+    }
+
+    /**
+     * @param directory directory holding the segments; created if missing
+     * @param segmentBytes size after which a new segment is started
+     * @param retainSegments whether segments are kept after a checkpoint
+     */
+    public FileJournal(File directory, long segmentBytes, boolean retainSegments) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.retainSegments = retainSegments;
+    }
+
+    /**
+     * Replay the records written after the last checkpoint, in order, and start a new segment for appending.
+     */
+    public void open(IJournalRecordHandler handler) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create journal directory " + directory);
+        }
+        checkpointSequence = readCheckpoint();
+        long lastSequence = checkpointSequence;
+        for (File file : listSegments()) {
+            lastSequence = Math.max(lastSequence, replay(file, checkpointSequence, handler));
+        }
+        synchronized (appendLock) {
+            nextSequence = lastSequence + 1;
+            syncedSequence.set(lastSequence);
+            segment = openSegment(nextSequence);
+        }
+        log.info("Opened journal {} at sequence {} (checkpoint {})", directory, nextSequence, checkpointSequence);
+    }
+
+    /**
+     * Write a record.  The record is not durable until {@link #sync} returns for its sequence number.
+     * @return sequence number of the record
+     * @throws ClosedByInterruptException if the calling thread was interrupted; the record is not written
+     */
+    public long append(byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        synchronized (appendLock) {
+            long sequence = nextSequence;
+            buffer.putInt(payload.length).putLong(sequence).putLong(crc.getValue()).put(payload).flip();
+            while (true) {
+                try {
+                    while (buffer.hasRemaining()) {
+                        segment.write(buffer);
+                    }
+                    break;
+                } catch (ClosedByInterruptException e) {
+                    reopenSegment();
+                    throw e;
+                } catch (ClosedChannelException e) {
+                    // Closed by a sync interrupted while forcing it; whatever was written of the record is rewritten
+                    reopenSegment();
+                    buffer.rewind();
+                }
+            }
+            segmentSize += buffer.limit();
+            nextSequence++;
+            if (segmentSize >= segmentBytes) {
+                rollSegment();
+            }
+            return sequence;
+        }
+    }
+
+    /**
+     * Force every record up to and including the specified one to disk.
+     * @throws ClosedByInterruptException if the calling thread was interrupted; the record may not be durable
+     */
+    public void sync(long sequence) throws IOException {
+        if (syncedSequence.get() >= sequence) {
+            return;
+        }
+        synchronized (syncLock) {
+            // Another caller may have forced this record while we waited
+            while (syncedSequence.get() < sequence) {
+                FileChannel channel;
+                long target;
+                synchronized (appendLock) {
+                    if (segment == null) {
+                        throw new ClosedChannelException();
+                    }
+                    channel = segment;
+                    target = nextSequence - 1;
+                }
+                try {
+                    channel.force(false);
+                    advanceSynced(target);
+                } catch (ClosedByInterruptException e) {
+                    // The interrupt closed the channel under the appenders too
+                    synchronized (appendLock) {
+                        if (segment == channel) {
+                            reopenSegment();
+                        }
+                    }
+                    throw e;
+                } catch (ClosedChannelException e) {
+                    // Rolled or closed, both of which force it and advance the synced sequence, or closed by an
+                    // interrupted append and reopened, in which case the new channel is forced on the next pass
+                }
+            }
+        }
+    }
+
+    /**
+     * Hand every record still held by the journal from the specified sequence number on, whether or not it is covered
+     * by a checkpoint, to the handler in order.  Records appended while replaying may or may not be included.
+     */
+    public void replay(long fromSequence, IJournalRecordHandler handler) throws IOException {
+        File[] segments = listSegments();
+        for (int i = 0; i < segments.length; i++) {
+            // Skip segments that end before the first record wanted
+            if (i + 1 < segments.length && firstSequence(segments[i + 1]) <= fromSequence) {
+                continue;
+            }
+            replay(segments[i], fromSequence - 1, handler);
+        }
+    }
+
+    /**
+     * Record that every record up to and including the specified one has been applied, and delete the segments that
+     * hold only such records unless segments are retained.
+     */
+    public void checkpoint(long sequence) throws IOException {
+        File temp = new File(directory, CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(Long.toString(sequence).getBytes(StandardCharsets.UTF_8)));
+            channel.force(true);
+        }
+        Files.move(temp.toPath(), new File(directory, CHECKPOINT_FILE).toPath(), StandardCopyOption.ATOMIC_MOVE);
+        checkpointSequence = sequence;
+        if (retainSegments) {
+            return;
+        }
+
+        File[] segments = listSegments();
+        for (int i = 0; i < segments.length - 1; i++) {
+            // A segment ends just before the next one starts; the last segment is the one being appended to
+            if (firstSequence(segments[i + 1]) - 1 <= sequence && !segments[i].delete()) {
+                log.warn("Cannot delete journal segment {}", segments[i]);
+            }
+        }
+    }
+
+    /**
+     * @return sequence number of the last checkpoint
+     */
+    public long getCheckpoint() {
+        return checkpointSequence;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            if (segment != null) {
+                segment.force(false);
+                segment.close();
+                advanceSynced(nextSequence - 1);
+                segment = null;
+            }
+        }
+    }
+
+    private void rollSegment() throws IOException {
+        segment.force(false);
+        segment.close();
+        advanceSynced(nextSequence - 1);
+        segment = openSegment(nextSequence);
+    }
+
+    /**
+     * Replace the segment channel after an interrupt closed it, dropping any record torn by the interrupt.  The
+     * calling thread keeps its interrupt status, which would otherwise close the new channel as well.
+     */
+    private void reopenSegment() throws IOException {
+        boolean interrupted = Thread.interrupted();
+        try {
+            FileChannel channel = FileChannel.open(segmentFile.toPath(), StandardOpenOption.WRITE);
+            channel.truncate(segmentSize);
+            channel.position(segmentSize);
+            segment = channel;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.warn("Reopened journal segment {} after an interrupt", segmentFile);
+    }
+
+    private void advanceSynced(long sequence) {
+        long current;
+        do {
+            current = syncedSequence.get();
+        } while (current < sequence && !syncedSequence.compareAndSet(current, sequence));
+    }
+
+    /**
+     * A segment named for the next sequence number can only exist if a crash tore its first record, so any existing
+     * content is discarded.
+     */
+    private FileChannel openSegment(long firstSequence) throws IOException {
+        segmentFile = new File(directory, String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        segmentSize = 0;
+        return FileChannel.open(segmentFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Hand the records of a segment after the specified sequence number to the handler, stopping at the first
+     * incomplete or corrupt record.
+     * @return sequence number of the last valid record, or afterSequence if there is none
+     */
+    private long replay(File file, long afterSequence, IJournalRecordHandler handler) throws IOException {
+        long lastSequence = afterSequence;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (true) {
+                header.clear();
+                if (!readFully(channel, header)) {
+                    break;
+                }
+                header.flip();
+                int length = header.getInt();
+                long sequence = header.getLong();
+                long checksum = header.getLong();
+                if (length < 0 || length > channel.size() - channel.position()) {
+                    log.warn("Truncated record {} in journal segment {}", sequence, file);
+                    break;
+                }
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                readFully(channel, payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload.array());
+                if (crc.getValue() != checksum) {
+                    log.warn("Corrupt record {} in journal segment {}", sequence, file);
+                    break;
+                }
+                if (sequence > afterSequence) {
+                    handler.handle(sequence, payload.array());
+                }
+                lastSequence = Math.max(lastSequence, sequence);
+            }
+        }
+        return lastSequence;
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long readCheckpoint() throws IOException {
+        File file = new File(directory, CHECKPOINT_FILE);
+        if (!file.isFile()) {
+            return 0;
+        }
+        String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim();
+        return text.isEmpty() ? 0 : Long.parseLong(text);
+    }
+
+    private File[] listSegments() {
+        File[] segments = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().startsWith(SEGMENT_PREFIX)
+                        && file.getName().endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        if (segments == null) {
+            return new File[0];
+        }
+        Arrays.sort(segments, new Comparator<File>() {
+            @Override
+            public int compare(File f1, File f2) {
+                return Long.compare(firstSequence(f1), firstSequence(f2));
+            }
+        });
+        return segments;
+    }
+
+    private static long firstSequence(File segment) {
+        String name = segment.getName();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -18,7 +18,13 @@
  */
 package org.jasig.portlet.survey.service.jpa;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jasig.portlet.survey.PublishedState;
 
 /**
  * DAO Interface for all survey related database operations.
@@ -39,20 +45,171 @@ public interface IJpaSurveyDao {
     public List<JpaSurvey> getAllSurveys();
     public JpaSurvey getSurvey(Long id);
     public JpaSurvey getSurveyByCanonicalName(String canonicalName);
+
+    /**
+     * List surveys in id order without loading their questions.
+     * @param afterId only surveys with a greater id are listed
+     * @param statuses statuses to list; null or empty for all
+     * @param limit maximum number of surveys
+     */
+    public List<SurveyListItem> getSurveyListItems(long afterId, Collection<PublishedState> statuses, int limit);
     public JpaSurveyText getText(String key, String variant);
 
+    /**
+     * @return last update date of the survey, or null if there is no such survey
+     */
+    public Date getSurveyLastUpdateDate(Long id);
+    public Date getSurveyLastUpdateDate(String canonicalName);
+
+    /**
+     * @return number of surveys
+     */
+    public long countSurveys();
+
+    /**
+     * @return latest update date of any survey, or null if there are none
+     */
+    public Date getSurveysLastUpdateDate();
+
+    /**
+     * Set the last update date of every survey that includes the question, e.g. when the question changes.
+     */
+    public void touchSurveysWithQuestion(Long questionId, Date date);
+
+    /**
+     * Set the last update date of every survey whose text is under the key, e.g. when the text changes.
+     */
+    public void touchSurveysWithText(String textKey, Date date);
+
+    /**
+     * Fetch the text groups of several keys in one query, resolving each key to the first variant of the chain that
+     * has text, or else the default text.
+     * @param variants variant fallback chain, most specific first
+     * @return text group by key; an empty text group for keys that have none
+     */
+    public Map<String, JpaSurveyText> getTexts(Collection<String> keys, List<String> variants);
+
     public JpaQuestion updateQuestion(JpaQuestion question);
     public JpaSurvey updateSurvey(JpaSurvey survey);
 
     JpaResponse createResponse(JpaResponse jpaResponse);
 
+    /**
+     * Persist several new responses at once so their inserts are sent as JDBC batches, and apply them to the summary
+     * counters and rollups together.  The persistence context is flushed and cleared afterwards, so entities loaded
+     * before the call are detached; callers should pass at most one JDBC batch worth of responses per call.
+     */
+    List<JpaResponse> createResponses(List<JpaResponse> jpaResponses);
+
     JpaResponse getResponse(long id);
 
     List<JpaResponse> getResponseByUser(String user);
 
     JpaResponse getResponseByUserAndSurvey(String user, long surveyId);
 
+    /**
+     * @return id of the user's response to the survey, or null if there is none; does not load the response
+     */
+    Long getResponseIdByUserAndSurvey(String user, long surveyId);
+
+    /**
+     * @return users among the given ones who responded to each of the given surveys, by survey id; surveys without
+     *         such a response are absent.  One query, which does not load the responses.
+     */
+    Map<Long, Set<String>> getRespondents(Collection<Long> surveyIds, Collection<String> users);
+
+    /**
+     * @return user of the response, or null if there is no such response; does not load the response
+     */
+    String getResponseUser(long responseId);
+
+    /**
+     * @return survey id of the response, or null if there is no such response; does not load the response
+     */
+    Long getResponseSurveyId(long responseId);
+
     JpaResponse updateResponse(JpaResponse jpaResponse);
 
+    /**
+     * Apply the answers, feedback and lastUpdated of changes to a managed response by difference: only answers
+     * added or removed are inserted or deleted, and answers to questions that are not part of changes are deleted.
+     * Summary counters and rollups are adjusted to match.
+     * @param existingResponse managed response to update
+     * @param changes unsaved response holding the new state, with questions and answers from the current session
+     * @return the updated response
+     */
+    JpaResponse updateResponseAnswers(JpaResponse existingResponse, JpaResponse changes);
+
+    /**
+     * Replace the answer to one question of a managed response, leaving its other answers untouched.  Only answers
+     * added or removed are inserted or deleted; a change with no answers deletes the answer to the question.
+     * Summary counters and rollups are adjusted to match.
+     * @param existingResponse managed response to update
+     * @param change unsaved answer holding the new state, with its question and answers from the current session
+     * @param lastUpdated new lastUpdated of the response
+     * @return the updated response
+     */
+    JpaResponse updateResponseAnswer(JpaResponse existingResponse, JpaResponseAnswer change, Date lastUpdated);
+
     List<JpaResponse> getResponseBySurvey(Long surveyId);
+
+    /**
+     * Return the summary counters for the specified survey.  Counters are built from the stored responses the first
+     * time they are requested and adjusted by {@link #createResponse} and {@link #updateResponse} afterwards.
+     */
+    List<JpaSurveySummaryCount> getSummaryCounts(Long surveyId);
+
+    /**
+     * Return the hourly response buckets of the specified survey that fall within [from, to], in order.  Buckets are
+     * built from the stored responses the first time they are requested and adjusted by {@link #createResponse} and
+     * {@link #updateResponse} afterwards.  Hours without responses have no bucket.
+     * @param from start of the range, or null for no lower bound
+     * @param to end of the range, or null for no upper bound
+     */
+    List<JpaResponseRollup> getResponseRollups(Long surveyId, Date from, Date to);
+
+    /**
+     * Count the responses to the specified survey with an aggregate query.
+     */
+    long countResponsesBySurvey(Long surveyId);
+
+    /**
+     * Count the selections of each (question, answer) pair of the specified survey with an aggregate query.
+     */
+    List<SurveyAnswerCount> countAnswersBySurvey(Long surveyId);
+
+    /**
+     * Walk every selected answer of the specified survey's responses through a forward-only cursor on a stateless
+     * session.  Nothing is retained between rows, so memory use does not grow with the number of responses.
+     */
+    void scrollResponseAnswers(Long surveyId, IResponseAnswerHandler handler);
+
+    /**
+     * As {@link #scrollResponseAnswers(Long, IResponseAnswerHandler)}, limited to responses whose id is within
+     * [minResponseId, maxResponseId].  Each call uses its own session, so ranges may be walked concurrently.
+     */
+    void scrollResponseAnswers(Long surveyId, long minResponseId, long maxResponseId, IResponseAnswerHandler handler);
+
+    /**
+     * As {@link #scrollResponseAnswers(Long, IResponseAnswerHandler)}, limited to the specified responses.
+     */
+    void scrollResponseAnswers(List<Long> responseIds, IResponseAnswerHandler handler);
+
+    /**
+     * Walk the ids of the specified survey's responses through a forward-only cursor on a stateless session.
+     */
+    void scrollResponseIds(Long surveyId, IResponseIdHandler handler);
+
+    /**
+     * @return the lowest and highest response id of the specified survey, or null if it has no responses
+     */
+    long[] getResponseIdRange(Long surveyId);
+
+    /**
+     * Read, as stored in the database, what the survey's responses and summary depend on: the response counter, the
+     * latest response update and the survey's last update.  Unlike versions kept in memory, it also changes with
+     * responses saved through other nodes.  The responses themselves are not scanned.
+     * @return opaque version that changes whenever a response is added or updated or the survey changes
+     */
+    String getSurveyDataVersion(Long surveyId);
 }
@@ -0,0 +1,30 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.jpa;
+
+/**
+ * Interface for beans that keep derived data (indexes, caches) in step with saved responses.  Every bean of this type
+ * in the application context is notified after the transaction that created or updated a response commits; responses
+ * saved in a transaction that rolls back are never reported.
+ *
+ * @since 1.0
+ */
+public interface IResponseSaveListener {
+    public void responseSaved(ResponseSaveEvent event);
+}
@@ -36,6 +36,7 @@ public interface ISurveyMapper {
     JpaQuestionAnswer toJpaQuestionAnswer(QuestionAnswerDTO qa);
 
     public List<SurveyDTO> toSurveyList(List<JpaSurvey> jpaList);
+    SurveyListItemDTO toSurveyListItem(SurveyListItem item);
     public List<QuestionAnswerDTO> toQuestionAnswerList(List<JpaQuestionAnswer> jpaList);
 
     ResponseDTO toResponse(JpaResponse response);
@@ -44,5 +45,11 @@ public interface ISurveyMapper {
     ResponseAnswerDTO toResponseAnswer(JpaResponseAnswer answer);
     JpaResponseAnswer toJpaResponseAnswer(ResponseAnswerDTO answer);
 
+    ResponseAnswerDTO toResponseAnswer(JpaResponse response, JpaResponseAnswer answer);
+    JpaResponseAnswer toJpaResponseAnswer(JpaResponse response, ResponseAnswerDTO answer);
+
     List<ResponseDTO> toResponseList(List<JpaResponse> responseList);
+
+    SurveySummaryDTO toSurveySummary(JpaSurvey survey, long responseCount, List<SurveyAnswerCount> counts);
+    SurveySummaryDTO toSurveySummary(JpaSurvey survey, long responseCount, AnswerCountTable counts);
 }
@@ -52,15 +52,16 @@ public class JpaQuestion implements Serializable {
     @Column(name = "HELP_TEXT", nullable = true)
     private String helpText;
 
+    // Ids are allocated in large blocks since a survey definition creates many at once
     @SequenceGenerator(
             name = JpaSurveyDataService.TABLENAME_PREFIX + "QUESTION_GEN",
             sequenceName = JpaSurveyDataService.TABLENAME_PREFIX + "QUESTION_SEQ",
-            allocationSize = 5
+            allocationSize = 50
     )
     @TableGenerator(
             name = JpaSurveyDataService.TABLENAME_PREFIX + "QUESTION_GEN",
             pkColumnValue = JpaSurveyDataService.TABLENAME_PREFIX + "QUESTION",
-            allocationSize = 5
+            allocationSize = 50
     )
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO, generator = JpaSurveyDataService.TABLENAME_PREFIX + "QUESTION_GEN")
@@ -31,7 +31,9 @@ import java.util.HashSet;
 import java.util.Set;
 
 /**
- * The persistent class for the survey_response database table.
+ * The persistent class for the survey_response database table.  A user has at most one response to a survey; databases
+ * created before that was enforced must be cleaned up with src/main/sql/upgrade/response-user-survey-unique.sql, since
+ * schema update cannot add the constraint while duplicates exist.
  *
  * @author Benito J. Gonzalez <bgonzalez@unicon.net>
  * @since 1.0
@@ -41,19 +43,27 @@ import java.util.Set;
     @NamedQuery(name = "JpaResponse.findBySurvey", query = "Select r from JpaResponse r where survey_id = ?1"),
     @NamedQuery(name = "JpaResponse.findByUserAndSurvey", query = "Select r from JpaResponse r where user = ?1 and survey_id = ?2")
 })
-@Table(name = JpaSurveyDataService.TABLENAME_PREFIX + "RESPONSE")
+@Table(name = JpaSurveyDataService.TABLENAME_PREFIX + "RESPONSE",
+        indexes = {
+            @Index(name = JpaSurveyDataService.TABLENAME_PREFIX + "RESPONSE_SURVEY_IDX", columnList = "SURVEY_ID"),
+            // Serves the latest update of a survey's responses without scanning them
+            @Index(name = JpaSurveyDataService.TABLENAME_PREFIX + "RESPONSE_SURVEY_UPDATED_IDX",
+                    columnList = "SURVEY_ID, LAST_UPDATED")
+        },
+        uniqueConstraints = @UniqueConstraint(name = JpaSurveyDataService.TABLENAME_PREFIX + "RESPONSE_USER_SURVEY_UQ",
+                columnNames = {"USER", "SURVEY_ID"}))
 public class JpaResponse implements Serializable {
     private static final long serialVersionUID = 1L;
 
     @SequenceGenerator(
             name = JpaSurveyDataService.TABLENAME_PREFIX + "RESPONSE_GEN",
             sequenceName = JpaSurveyDataService.TABLENAME_PREFIX + "RESPONSE_SEQ",
-            allocationSize = 5
+            allocationSize = 50
     )
     @TableGenerator(
             name = JpaSurveyDataService.TABLENAME_PREFIX + "RESPONSE_GEN",
             pkColumnValue = JpaSurveyDataService.TABLENAME_PREFIX + "RESPONSE",
-            allocationSize = 5
+            allocationSize = 50
     )
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO, generator = JpaSurveyDataService.TABLENAME_PREFIX + "RESPONSE_GEN")
@@ -128,9 +138,12 @@ public class JpaResponse implements Serializable {
         return jpaResponseAnswer;
     }
 
+    /**
+     * The removed answer keeps its reference to this response since that is part of its key, which identifies the row
+     * to delete.
+     */
     public JpaResponseAnswer removeJpaResponseAnswer(JpaResponseAnswer jpaResponseAnswer) {
         this.jpaResponseAnswers.remove(jpaResponseAnswer);
-        jpaResponseAnswer.getId().setJpaResponse(null);
         return jpaResponseAnswer;
     }
 
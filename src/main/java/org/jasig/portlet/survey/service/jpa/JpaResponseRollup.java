@@ -0,0 +1,96 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.jpa;
+
+import org.jasig.portlet.survey.mvc.service.JpaSurveyDataService;
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+
+/**
+ * The persistent class for the survey_response_rollup database table.
+ * Holds the number of responses to a survey whose last update falls within a given hour (UTC).  The buckets are
+ * adjusted by delta whenever a response is created or updated so that submission activity can be charted without
+ * scanning the responses.  The row with a bucket of {@link #TOTAL_BUCKET} holds the number of responses.
+ *
+ * @since 1.0
+ */
+@Entity
+@Table(name = JpaSurveyDataService.TABLENAME_PREFIX + "RESPONSE_ROLLUP")
+public class JpaResponseRollup implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final long MILLIS_PER_HOUR = 60L * 60L * 1000L;
+
+    /**
+     * Bucket used for the per-survey response total.  Hours since the epoch are never negative.
+     */
+    public static final long TOTAL_BUCKET = -1L;
+
+    @EmbeddedId
+    private JpaResponseRollupPK id;
+
+    @Column(name = "RESPONSE_COUNT", nullable = false)
+    private long count;
+
+    public JpaResponseRollup() {}
+
+    public JpaResponseRollup(JpaResponseRollupPK id, long count) {
+        this.id = id;
+        this.count = count;
+    }
+
+    /**
+     * @return the hourly bucket holding the specified time
+     */
+    public static long toBucket(Date date) {
+        return date.getTime() / MILLIS_PER_HOUR;
+    }
+
+    public JpaResponseRollupPK getId() {
+        return id;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return start of the hour counted by this bucket
+     */
+    public Date getBucketStart() {
+        return new Date(id.getBucket() * MILLIS_PER_HOUR);
+    }
+
+    public boolean isTotal() {
+        return id.getBucket() == TOTAL_BUCKET;
+    }
+
+    public void setId(JpaResponseRollupPK id) {
+        this.id = id;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.jpa;
+
+import java.io.Serializable;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+
+/**
+ * The primary key class for the survey_response_rollup database table.
+ * The bucket is the number of whole hours since the epoch.
+ *
+ * @since 1.0
+ */
+@Embeddable
+public class JpaResponseRollupPK implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @Column(name = "SURVEY_ID", nullable = false)
+    private long surveyId;
+
+    @Column(name = "BUCKET_HOUR", nullable = false)
+    private long bucket;
+
+    public JpaResponseRollupPK() {}
+
+    public JpaResponseRollupPK(long surveyId, long bucket) {
+        this.surveyId = surveyId;
+        this.bucket = bucket;
+    }
+
+    public long getSurveyId() {
+        return surveyId;
+    }
+
+    public long getBucket() {
+        return bucket;
+    }
+
+    public void setSurveyId(long surveyId) {
+        this.surveyId = surveyId;
+    }
+
+    public void setBucket(long bucket) {
+        this.bucket = bucket;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof JpaResponseRollupPK)) {
+            return false;
+        }
+        JpaResponseRollupPK castOther = (JpaResponseRollupPK) other;
+        return this.surveyId == castOther.surveyId && this.bucket == castOther.bucket;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int hash = 17;
+        hash = hash * prime + ((int) (this.surveyId ^ (this.surveyId >>> 32)));
+        hash = hash * prime + ((int) (this.bucket ^ (this.bucket >>> 32)));
+        return hash;
+    }
+}
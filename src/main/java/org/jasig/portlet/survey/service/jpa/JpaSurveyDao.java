@@ -18,20 +18,71 @@
  */
 package org.jasig.portlet.survey.service.jpa;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnit;
 
 import org.apache.commons.collections.IteratorUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.Validate;
+import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.jdbc.ReturningWork;
+import org.jasig.portlet.survey.PublishedState;
+import org.jasig.portlet.survey.mvc.service.JpaSurveyDataService;
 import org.jasig.portlet.survey.service.jpa.repo.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 @Service
 class JpaSurveyDao implements IJpaSurveyDao {
+    /**
+     * Rows fetched per round trip when walking responses with a cursor.
+     */
+    private static final int SCROLL_FETCH_SIZE = 500;
+
+    /**
+     * Text keys looked up per query when fetching the text of several keys.
+     */
+    private static final int TEXT_KEYS_PER_QUERY = 500;
+
+    private static final String SUMMARY_COUNT_INSERT = "INSERT INTO " + JpaSurveyDataService.TABLENAME_PREFIX
+            + "SUMMARY_COUNT (SURVEY_ID, QUESTION_ID, ANSWER_ID, ANSWER_COUNT) VALUES (?, ?, ?, ?)";
+
+    private static final String RESPONSE_ROLLUP_INSERT = "INSERT INTO " + JpaSurveyDataService.TABLENAME_PREFIX
+            + "RESPONSE_ROLLUP (SURVEY_ID, BUCKET_HOUR, RESPONSE_COUNT) VALUES (?, ?, ?)";
+
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     @Autowired
     private JpaAnswerRepository answerRepository;
 
@@ -56,6 +107,21 @@ class JpaSurveyDao implements IJpaSurveyDao {
     @Autowired
     private JpaSurveyTextRepository surveyTextRepository;
 
+    @Autowired
+    private JpaSurveySummaryCountRepository summaryCountRepository;
+
+    @Autowired
+    private JpaResponseRollupRepository rollupRepository;
+
+    /**
+     * Surveys whose summary counters and rollup buckets are known to exist.
+     */
+    private final Set<Long> surveysWithSummaryCounts =
+            Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+    private final Set<Long> surveysWithRollup = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
     @Override
     public JpaSurveyQuestion attachQuestionToSurvey(Long surveyId, Long questionId, JpaSurveyQuestion surveyQuestion) {
         JpaSurvey survey = getSurvey(surveyId);
@@ -94,6 +160,12 @@ class JpaSurveyDao implements IJpaSurveyDao {
         return newQa;
     }
 
+    /**
+     * New questions and answers of the survey are persisted with the survey rather than saved one at a time, so
+     * nothing is written until the persistence context is flushed and the inserts go out as JDBC batches, one table
+     * at a time.  Answers are persisted before their questions since the question-answer links are keyed by both.
+     * Questions that already have an id are linked by reference without being written again.
+     */
     @Override
     public JpaSurvey createSurvey(JpaSurvey survey) {
         List<JpaSurveyQuestion> sqList = survey.getJpaSurveyQuestions();
@@ -102,14 +174,37 @@ class JpaSurveyDao implements IJpaSurveyDao {
                 sq.getId().setJpaSurvey(survey);
 
                 JpaQuestion q = sq.getId().getJpaQuestion();
-                setupQuestionForSave(q, true);
-                q = createQuestion(q);
+                if (q.getId() != 0) {
+                    // Existing question: link it as stored; it is changed through updateQuestion, not here
+                    q = entityManager.getReference(JpaQuestion.class, q.getId());
+                } else {
+                    persistQuestion(q);
+                }
                 sq.getId().setJpaQuestion(q);
             }
         }
 
-        JpaSurvey s = surveyRepository.save(survey);
-        return s;
+        entityManager.persist(survey);
+        return survey;
+    }
+
+    /**
+     * Persist a new question with its answers; the question-answer links are persisted by cascade.
+     */
+    private void persistQuestion(JpaQuestion question) {
+        if (question.getJpaQuestionAnswers() != null) {
+            for (JpaQuestionAnswer qa : question.getJpaQuestionAnswers()) {
+                JpaAnswer answer = qa.getId().getJpaAnswer();
+                if (answer.getId() == 0) {
+                    entityManager.persist(answer);
+                } else {
+                    answer = entityManager.merge(answer);
+                }
+                qa.getId().setJpaQuestion(question);
+                qa.getId().setJpaAnswer(answer);
+            }
+        }
+        entityManager.persist(question);
     }
 
     @Override
@@ -174,6 +269,85 @@ class JpaSurveyDao implements IJpaSurveyDao {
         return result == null ? new JpaSurveyText() : result;
     }
 
+    @Override
+    public List<SurveyListItem> getSurveyListItems(long afterId, Collection<PublishedState> statuses, int limit) {
+        PageRequest page = new PageRequest(0, limit);
+        if (statuses == null || statuses.isEmpty()) {
+            return surveyRepository.findListItems(afterId, page);
+        }
+        return surveyRepository.findListItemsByStatus(afterId, statuses, page);
+    }
+
+    @Override
+    public Date getSurveyLastUpdateDate(Long id) {
+        return surveyRepository.findLastUpdateDateById(id);
+    }
+
+    @Override
+    public Date getSurveyLastUpdateDate(String canonicalName) {
+        return surveyRepository.findLastUpdateDateByCanonicalName(canonicalName);
+    }
+
+    @Override
+    public long countSurveys() {
+        return surveyRepository.count();
+    }
+
+    @Override
+    public Date getSurveysLastUpdateDate() {
+        return surveyRepository.findMaxLastUpdateDate();
+    }
+
+    @Override
+    public void touchSurveysWithQuestion(Long questionId, Date date) {
+        surveyRepository.updateLastUpdateDateByQuestion(questionId, date);
+    }
+
+    @Override
+    public void touchSurveysWithText(String textKey, Date date) {
+        if (!StringUtils.isEmpty(textKey)) {
+            surveyRepository.updateLastUpdateDateByTextKey(textKey, date);
+        }
+    }
+
+    @Override
+    public Map<String, JpaSurveyText> getTexts(Collection<String> keys, List<String> variants) {
+        // Rank of each variant in the chain; the default text comes last
+        Map<String, Integer> ranks = new HashMap<>();
+        for (String variant : variants) {
+            String trimmed = StringUtils.trimToEmpty(variant);
+            if (!ranks.containsKey(trimmed)) {
+                ranks.put(trimmed, ranks.size());
+            }
+        }
+        if (!ranks.containsKey("")) {
+            ranks.put("", ranks.size());
+        }
+
+        Map<String, JpaSurveyText> results = new HashMap<>();
+        Map<String, Integer> resolvedRanks = new HashMap<>();
+        List<String> lookupKeys = new ArrayList<>();
+        for (String key : keys) {
+            results.put(key, new JpaSurveyText());
+            if (!StringUtils.isEmpty(key)) {
+                lookupKeys.add(key);
+            }
+        }
+        // Keep the IN lists within what every database accepts
+        for (int i = 0; i < lookupKeys.size(); i += TEXT_KEYS_PER_QUERY) {
+            List<String> chunk = lookupKeys.subList(i, Math.min(i + TEXT_KEYS_PER_QUERY, lookupKeys.size()));
+            for (JpaSurveyText text : surveyTextRepository.findByKeysAndVariants(chunk, ranks.keySet())) {
+                Integer rank = ranks.get(StringUtils.trimToEmpty(text.getVariant()));
+                Integer resolvedRank = resolvedRanks.get(text.getKey());
+                if (rank != null && (resolvedRank == null || rank < resolvedRank)) {
+                    results.put(text.getKey(), text);
+                    resolvedRanks.put(text.getKey(), rank);
+                }
+            }
+        }
+        return results;
+    }
+
     private void setupQuestionForSave(JpaQuestion jpaQuestion, boolean createAnswer) {
         Set<JpaQuestionAnswer> qaList = jpaQuestion.getJpaQuestionAnswers();
         if (qaList != null && !qaList.isEmpty()) {
@@ -216,7 +390,45 @@ class JpaSurveyDao implements IJpaSurveyDao {
 
     @Override
     public JpaResponse createResponse(JpaResponse jpaResponse) {
-        return responseRepository.save(jpaResponse);
+        JpaResponse newResponse = responseRepository.save(jpaResponse);
+        adjustSummaryCounts(newResponse.getSurvey().getId(), 1, summaryCountKeys(newResponse),
+                new HashSet<JpaSurveySummaryCountPK>());
+        adjustResponseRollup(newResponse.getSurvey().getId(), null, newResponse.getLastUpdated());
+        return newResponse;
+    }
+
+    @Override
+    public List<JpaResponse> createResponses(List<JpaResponse> jpaResponses) {
+        Map<Long, List<JpaResponse>> responsesBySurvey = new HashMap<>();
+        for (JpaResponse jpaResponse : jpaResponses) {
+            entityManager.persist(jpaResponse);
+            Long surveyId = jpaResponse.getSurvey().getId();
+            if (!responsesBySurvey.containsKey(surveyId)) {
+                responsesBySurvey.put(surveyId, new ArrayList<JpaResponse>());
+            }
+            responsesBySurvey.get(surveyId).add(jpaResponse);
+        }
+        // Send the inserts as JDBC batches before the counter updates interleave with them
+        entityManager.flush();
+
+        for (Map.Entry<Long, List<JpaResponse>> survey : responsesBySurvey.entrySet()) {
+            Map<JpaSurveySummaryCountPK, Long> countDeltas = new HashMap<>();
+            Map<Long, Long> rollupDeltas = new HashMap<>();
+            for (JpaResponse jpaResponse : survey.getValue()) {
+                for (JpaSurveySummaryCountPK pk : summaryCountKeys(jpaResponse)) {
+                    Long count = countDeltas.get(pk);
+                    countDeltas.put(pk, count == null ? 1L : count + 1L);
+                }
+                long bucket = JpaResponseRollup.toBucket(jpaResponse.getLastUpdated());
+                Long count = rollupDeltas.get(bucket);
+                rollupDeltas.put(bucket, count == null ? 1L : count + 1L);
+            }
+            adjustSummaryCounts(survey.getKey(), survey.getValue().size(), countDeltas);
+            adjustResponseRollup(survey.getKey(), survey.getValue().size(), rollupDeltas);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return jpaResponses;
     }
 
     @Override
@@ -236,13 +448,541 @@ class JpaSurveyDao implements IJpaSurveyDao {
         return responseIter.iterator().hasNext() ? responseIter.iterator().next() : null;
     }
 
+    @Override
+    public Long getResponseIdByUserAndSurvey(String user, long surveyId) {
+        List<Long> ids = responseRepository.findIdByUserAndSurvey(user, surveyId);
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    @Override
+    public Map<Long, Set<String>> getRespondents(Collection<Long> surveyIds, Collection<String> users) {
+        Map<Long, Set<String>> respondents = new HashMap<>();
+        for (Object[] row : responseRepository.findSurveyIdAndUserBySurveyInAndUserIn(surveyIds, users)) {
+            Long surveyId = (Long) row[0];
+            if (!respondents.containsKey(surveyId)) {
+                respondents.put(surveyId, new HashSet<String>());
+            }
+            respondents.get(surveyId).add((String) row[1]);
+        }
+        return respondents;
+    }
+
+    @Override
+    public String getResponseUser(long responseId) {
+        List<String> users = responseRepository.findUserById(responseId);
+        return users.isEmpty() ? null : users.get(0);
+    }
+
+    @Override
+    public Long getResponseSurveyId(long responseId) {
+        List<Long> ids = responseRepository.findSurveyIdById(responseId);
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
     @Override
     public JpaResponse updateResponse(JpaResponse jpaResponse) {
-        return responseRepository.save(jpaResponse);
+        // Snapshot the stored answers before the merge overwrites the managed instance
+        JpaResponse existingResponse = responseRepository.findOne(jpaResponse.getId());
+        Set<JpaSurveySummaryCountPK> removed = existingResponse == null
+                ? new HashSet<JpaSurveySummaryCountPK>() : summaryCountKeys(existingResponse);
+        Date previousLastUpdated = existingResponse == null ? null : existingResponse.getLastUpdated();
+
+        JpaResponse updatedResponse = responseRepository.save(jpaResponse);
+
+        Set<JpaSurveySummaryCountPK> added = summaryCountKeys(updatedResponse);
+        Set<JpaSurveySummaryCountPK> unchanged = new HashSet<>(added);
+        unchanged.retainAll(removed);
+        added.removeAll(unchanged);
+        removed.removeAll(unchanged);
+        adjustSummaryCounts(updatedResponse.getSurvey().getId(), existingResponse == null ? 1 : 0, added, removed);
+        adjustResponseRollup(updatedResponse.getSurvey().getId(), previousLastUpdated,
+                updatedResponse.getLastUpdated());
+        return updatedResponse;
+    }
+
+    @Override
+    public JpaResponse updateResponseAnswers(JpaResponse existingResponse, JpaResponse changes) {
+        Set<JpaSurveySummaryCountPK> removed = summaryCountKeys(existingResponse);
+        Date previousLastUpdated = existingResponse.getLastUpdated();
+
+        Map<Long, JpaResponseAnswer> unanswered = getResponseAnswersByQuestion(existingResponse);
+        for (JpaResponseAnswer change : changes.getJpaResponseAnswers()) {
+            upsertResponseAnswer(existingResponse, unanswered.remove(change.getId().getQuestionId()), change);
+        }
+        if (!unanswered.isEmpty()) {
+            deleteResponseAnswers(existingResponse, unanswered.values());
+        }
+        existingResponse.setFeedback(changes.getFeedback());
+        existingResponse.setLastUpdated(changes.getLastUpdated());
+
+        adjustUpdatedResponseCounts(existingResponse, removed, previousLastUpdated);
+        return existingResponse;
+    }
+
+    @Override
+    public JpaResponse updateResponseAnswer(JpaResponse existingResponse, JpaResponseAnswer change, Date lastUpdated) {
+        Set<JpaSurveySummaryCountPK> removed = summaryCountKeys(existingResponse);
+        Date previousLastUpdated = existingResponse.getLastUpdated();
+
+        JpaResponseAnswer responseAnswer = getResponseAnswersByQuestion(existingResponse)
+                .get(change.getId().getQuestionId());
+        if (!change.getAnswer().isEmpty()) {
+            upsertResponseAnswer(existingResponse, responseAnswer, change);
+        } else if (responseAnswer != null) {
+            deleteResponseAnswers(existingResponse, Collections.singletonList(responseAnswer));
+        }
+        existingResponse.setLastUpdated(lastUpdated);
+
+        adjustUpdatedResponseCounts(existingResponse, removed, previousLastUpdated);
+        return existingResponse;
+    }
+
+    private static Map<Long, JpaResponseAnswer> getResponseAnswersByQuestion(JpaResponse response) {
+        Map<Long, JpaResponseAnswer> responseAnswers = new HashMap<>();
+        for (JpaResponseAnswer responseAnswer : response.getJpaResponseAnswers()) {
+            responseAnswers.put(responseAnswer.getId().getQuestionId(), responseAnswer);
+        }
+        return responseAnswers;
+    }
+
+    /**
+     * Add the answer to a question to a managed response, or bring its existing answer (if not null) in line with
+     * the change.
+     */
+    private void upsertResponseAnswer(JpaResponse response, JpaResponseAnswer responseAnswer,
+            JpaResponseAnswer change) {
+        if (responseAnswer == null) {
+            responseAnswer = new JpaResponseAnswer();
+            responseAnswer.setId(new JpaResponseAnswerPK(response, change.getId().getJpaQuestion()));
+            responseAnswer.setAnswer(change.getAnswer());
+            response.addJpaResponseAnswer(responseAnswer);
+        } else {
+            updateSelectedAnswers(responseAnswer, change.getAnswer());
+        }
+    }
+
+    /**
+     * Adjust summary counters and rollups for an existing response whose answers were previously those of removed
+     * and whose lastUpdated was previousLastUpdated.
+     */
+    private void adjustUpdatedResponseCounts(JpaResponse response, Set<JpaSurveySummaryCountPK> removed,
+            Date previousLastUpdated) {
+        long surveyId = response.getSurvey().getId();
+        Set<JpaSurveySummaryCountPK> added = summaryCountKeys(response);
+        Set<JpaSurveySummaryCountPK> unchanged = new HashSet<>(added);
+        unchanged.retainAll(removed);
+        added.removeAll(unchanged);
+        removed.removeAll(unchanged);
+        adjustSummaryCounts(surveyId, 0, added, removed);
+        adjustResponseRollup(surveyId, previousLastUpdated, response.getLastUpdated());
+    }
+
+    /**
+     * Bring the selected answers of a managed response answer in line with the specified ones by removing and adding
+     * elements, so only the changed rows of the join table are written.
+     */
+    private void updateSelectedAnswers(JpaResponseAnswer responseAnswer, Set<JpaAnswer> selected) {
+        Set<Long> selectedIds = new HashSet<>();
+        for (JpaAnswer answer : selected) {
+            selectedIds.add(answer.getId());
+        }
+        Set<Long> currentIds = new HashSet<>();
+        for (JpaAnswer answer : new ArrayList<>(responseAnswer.getAnswer())) {
+            currentIds.add(answer.getId());
+            if (!selectedIds.contains(answer.getId())) {
+                responseAnswer.removeJpaAnswer(answer);
+            }
+        }
+        for (JpaAnswer answer : selected) {
+            if (!currentIds.contains(answer.getId())) {
+                responseAnswer.addJpaAnswer(answer);
+            }
+        }
+    }
+
+    /**
+     * Delete the answers of a response to questions no longer answered.  Removing the entities would cascade to the
+     * questions and answers they refer to, so the selected answers are cleared and the rows deleted by query instead.
+     */
+    private void deleteResponseAnswers(JpaResponse response, Collection<JpaResponseAnswer> responseAnswers) {
+        for (JpaResponseAnswer responseAnswer : responseAnswers) {
+            response.removeJpaResponseAnswer(responseAnswer);
+            responseAnswer.setAnswer(new HashSet<JpaAnswer>());
+        }
+        entityManager.flush();
+        for (JpaResponseAnswer responseAnswer : responseAnswers) {
+            responseAnswerRepository.deleteByResponseAndQuestion(response.getId(),
+                    responseAnswer.getId().getQuestionId());
+        }
     }
 
     @Override
     public List<JpaResponse> getResponseBySurvey(Long surveyId) {
         return responseRepository.findBySurvey(surveyId);
     }
+
+    @Override
+    public List<JpaSurveySummaryCount> getSummaryCounts(Long surveyId) {
+        List<JpaSurveySummaryCount> counts = summaryCountRepository.findBySurvey(surveyId);
+        if (counts.isEmpty()) {
+            counts = rebuildSummaryCounts(surveyId);
+        }
+        return counts;
+    }
+
+    /**
+     * Apply the changes of a single response save to the survey's counters.  The response counter doubles as the
+     * marker that counters exist for the survey; if it is missing (surveys answered before counters were introduced)
+     * the counters are rebuilt from the responses instead, which already include the response being saved.  Only
+     * counters that change are updated, so saves that leave the response count alone do not contend for its row.
+     */
+    private void adjustSummaryCounts(long surveyId, long responseDelta, Set<JpaSurveySummaryCountPK> added,
+            Set<JpaSurveySummaryCountPK> removed) {
+        Map<JpaSurveySummaryCountPK, Long> deltas = new HashMap<>();
+        for (JpaSurveySummaryCountPK pk : added) {
+            deltas.put(pk, 1L);
+        }
+        for (JpaSurveySummaryCountPK pk : removed) {
+            deltas.put(pk, -1L);
+        }
+        adjustSummaryCounts(surveyId, responseDelta, deltas);
+    }
+
+    /**
+     * As {@link #adjustSummaryCounts(long, long, Set, Set)}, for the combined changes of several saves.
+     */
+    private void adjustSummaryCounts(long surveyId, long responseDelta, Map<JpaSurveySummaryCountPK, Long> deltas) {
+        if (!summaryCountsExist(surveyId)) {
+            rebuildSummaryCounts(surveyId);
+            return;
+        }
+        if (responseDelta != 0) {
+            incrementSummaryCount(new JpaSurveySummaryCountPK(surveyId, JpaSurveySummaryCount.RESPONSE_COUNT_ID,
+                    JpaSurveySummaryCount.RESPONSE_COUNT_ID), responseDelta);
+        }
+        for (Map.Entry<JpaSurveySummaryCountPK, Long> delta : deltas.entrySet()) {
+            if (delta.getValue() != 0) {
+                incrementSummaryCount(delta.getKey(), delta.getValue());
+            }
+        }
+    }
+
+    /**
+     * Adjust a counter, creating it if this is its first answer.  Another transaction may create the same counter
+     * concurrently; the insert that loses the race is undone and the update retried against the winner's row.
+     */
+    private void incrementSummaryCount(JpaSurveySummaryCountPK pk, long delta) {
+        int updated = summaryCountRepository.incrementCount(pk.getSurveyId(), pk.getQuestionId(), pk.getAnswerId(),
+                delta);
+        if (updated == 0 && !insertIfAbsent(SUMMARY_COUNT_INSERT, pk.getSurveyId(), pk.getQuestionId(),
+                pk.getAnswerId(), delta)) {
+            updated = summaryCountRepository.incrementCount(pk.getSurveyId(), pk.getQuestionId(), pk.getAnswerId(),
+                    delta);
+            if (updated == 0) {
+                throw new IllegalStateException("Could neither insert nor update summary counter "
+                        + pk.getSurveyId() + "/" + pk.getQuestionId() + "/" + pk.getAnswerId());
+            }
+        }
+    }
+
+    /**
+     * Move a saved response into the hourly bucket of its new last update time.  As with the summary counters the
+     * total bucket marks that buckets exist for the survey; if it is missing they are rebuilt instead.  Buckets whose
+     * count does not change, including the total when a response is updated, are left alone.
+     * @param previous last update time before the save, or null if the response is new
+     */
+    private void adjustResponseRollup(long surveyId, Date previous, Date current) {
+        Map<Long, Long> deltas = new HashMap<>();
+        if (previous != null) {
+            deltas.put(JpaResponseRollup.toBucket(previous), -1L);
+        }
+        long currentBucket = JpaResponseRollup.toBucket(current);
+        deltas.put(currentBucket, deltas.containsKey(currentBucket) ? 0L : 1L);
+        adjustResponseRollup(surveyId, previous == null ? 1L : 0L, deltas);
+    }
+
+    /**
+     * As {@link #adjustResponseRollup(long, Date, Date)}, for the combined changes of several saves.
+     * @param deltas change of each bucket
+     */
+    private void adjustResponseRollup(long surveyId, long responseDelta, Map<Long, Long> deltas) {
+        if (!responseRollupExists(surveyId)) {
+            rebuildResponseRollup(surveyId);
+            return;
+        }
+        if (responseDelta != 0) {
+            incrementResponseRollup(surveyId, JpaResponseRollup.TOTAL_BUCKET, responseDelta);
+        }
+        for (Map.Entry<Long, Long> delta : deltas.entrySet()) {
+            if (delta.getValue() != 0) {
+                incrementResponseRollup(surveyId, delta.getKey(), delta.getValue());
+            }
+        }
+    }
+
+    /**
+     * Adjust a bucket, creating it for the first response of its hour.  Races with other transactions creating the
+     * same bucket are resolved as in {@link #incrementSummaryCount(JpaSurveySummaryCountPK, long)}.
+     */
+    private void incrementResponseRollup(long surveyId, long bucket, long delta) {
+        int updated = rollupRepository.incrementCount(surveyId, bucket, delta);
+        if (updated == 0 && !insertIfAbsent(RESPONSE_ROLLUP_INSERT, surveyId, bucket, delta)) {
+            updated = rollupRepository.incrementCount(surveyId, bucket, delta);
+            if (updated == 0) {
+                throw new IllegalStateException("Could neither insert nor update response rollup "
+                        + surveyId + "/" + bucket);
+            }
+        }
+    }
+
+    @Override
+    public List<JpaResponseRollup> getResponseRollups(Long surveyId, Date from, Date to) {
+        if (!responseRollupExists(surveyId)) {
+            rebuildResponseRollup(surveyId);
+        }
+        long fromBucket = from == null ? 0L : Math.max(0L, JpaResponseRollup.toBucket(from));
+        long toBucket = to == null ? Long.MAX_VALUE : JpaResponseRollup.toBucket(to);
+        return rollupRepository.findBySurveyAndBuckets(surveyId, fromBucket, toBucket);
+    }
+
+    /**
+     * As {@link #summaryCountsExist(long)}, for the total bucket that marks the survey's rollup buckets.
+     */
+    private boolean responseRollupExists(long surveyId) {
+        if (surveysWithRollup.contains(surveyId)) {
+            return true;
+        }
+        if (rollupRepository.countTotalBySurvey(surveyId) == 0) {
+            return false;
+        }
+        surveysWithRollup.add(surveyId);
+        return true;
+    }
+
+    private void rebuildResponseRollup(Long surveyId) {
+        rollupRepository.deleteBySurvey(surveyId);
+
+        List<Date> lastUpdates = responseRepository.findLastUpdatedBySurvey(surveyId);
+        Map<Long, Long> counts = new HashMap<>();
+        for (Date lastUpdated : lastUpdates) {
+            long bucket = JpaResponseRollup.toBucket(lastUpdated);
+            Long count = counts.get(bucket);
+            counts.put(bucket, count == null ? 1L : count + 1L);
+        }
+
+        List<JpaResponseRollup> rollups = new ArrayList<>(counts.size() + 1);
+        rollups.add(new JpaResponseRollup(new JpaResponseRollupPK(surveyId, JpaResponseRollup.TOTAL_BUCKET),
+                lastUpdates.size()));
+        for (Map.Entry<Long, Long> count : counts.entrySet()) {
+            rollups.add(new JpaResponseRollup(new JpaResponseRollupPK(surveyId, count.getKey()), count.getValue()));
+        }
+        for (JpaResponseRollup rollup : rollups) {
+            JpaResponseRollupPK pk = rollup.getId();
+            if (!insertIfAbsent(RESPONSE_ROLLUP_INSERT, pk.getSurveyId(), pk.getBucket(), rollup.getCount())) {
+                // Rebuilt by a concurrent transaction since our delete; our counts include our own changes
+                rollupRepository.setCount(pk.getSurveyId(), pk.getBucket(), rollup.getCount());
+            }
+        }
+        log.debug("Rebuilt {} response rollup buckets for survey {}", rollups.size(), surveyId);
+    }
+
+    @Override
+    public long countResponsesBySurvey(Long surveyId) {
+        return responseRepository.countBySurvey(surveyId);
+    }
+
+    @Override
+    public List<SurveyAnswerCount> countAnswersBySurvey(Long surveyId) {
+        return responseAnswerRepository.countAnswersBySurvey(surveyId);
+    }
+
+    @Override
+    public void scrollResponseAnswers(Long surveyId, IResponseAnswerHandler handler) {
+        scrollResponseAnswers(surveyId, Long.MIN_VALUE, Long.MAX_VALUE, handler);
+    }
+
+    @Override
+    public void scrollResponseAnswers(Long surveyId, long minResponseId, long maxResponseId,
+            final IResponseAnswerHandler handler) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("surveyId", surveyId);
+        parameters.put("minResponseId", minResponseId);
+        parameters.put("maxResponseId", maxResponseId);
+        scroll("SELECT ra.id.jpaResponse.id, ra.id.jpaQuestion.id, a.id "
+                + "FROM JpaResponseAnswer ra JOIN ra.answer a "
+                + "WHERE ra.id.jpaResponse.survey.id = :surveyId "
+                + "AND ra.id.jpaResponse.id BETWEEN :minResponseId AND :maxResponseId "
+                + "ORDER BY ra.id.jpaResponse.id", parameters, new RowHandler() {
+            @Override
+            public void handle(ScrollableResults row) {
+                handler.handle(row.getLong(0), row.getLong(1), row.getLong(2));
+            }
+        });
+    }
+
+    @Override
+    public void scrollResponseAnswers(List<Long> responseIds, final IResponseAnswerHandler handler) {
+        for (int from = 0; from < responseIds.size(); from += SCROLL_FETCH_SIZE) {
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put("responseIds",
+                    responseIds.subList(from, Math.min(from + SCROLL_FETCH_SIZE, responseIds.size())));
+            scroll("SELECT ra.id.jpaResponse.id, ra.id.jpaQuestion.id, a.id "
+                    + "FROM JpaResponseAnswer ra JOIN ra.answer a "
+                    + "WHERE ra.id.jpaResponse.id IN (:responseIds) "
+                    + "ORDER BY ra.id.jpaResponse.id", parameters, new RowHandler() {
+                @Override
+                public void handle(ScrollableResults row) {
+                    handler.handle(row.getLong(0), row.getLong(1), row.getLong(2));
+                }
+            });
+        }
+    }
+
+    @Override
+    public void scrollResponseIds(Long surveyId, final IResponseIdHandler handler) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("surveyId", surveyId);
+        scroll("SELECT r.id FROM JpaResponse r WHERE r.survey.id = :surveyId", parameters, new RowHandler() {
+            @Override
+            public void handle(ScrollableResults row) {
+                handler.handle(row.getLong(0));
+            }
+        });
+    }
+
+    /**
+     * Run a query on a stateless session and hand its rows to the handler through a forward-only cursor.
+     */
+    private void scroll(String queryString, Map<String, Object> parameters, RowHandler handler) {
+        StatelessSession session = entityManagerFactory.unwrap(SessionFactory.class).openStatelessSession();
+        // Some drivers (e.g. PostgreSQL) only honor the fetch size outside of auto-commit mode
+        Transaction tx = session.beginTransaction();
+        ScrollableResults results = null;
+        try {
+            Query query = session.createQuery(queryString);
+            for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+                if (parameter.getValue() instanceof Collection) {
+                    query.setParameterList(parameter.getKey(), (Collection<?>) parameter.getValue());
+                } else {
+                    query.setParameter(parameter.getKey(), parameter.getValue());
+                }
+            }
+            results = query.setFetchSize(SCROLL_FETCH_SIZE)
+                    .setReadOnly(true)
+                    .scroll(ScrollMode.FORWARD_ONLY);
+            while (results.next()) {
+                handler.handle(results);
+            }
+        } finally {
+            if (results != null) {
+                results.close();
+            }
+            tx.rollback();
+            session.close();
+        }
+    }
+
+    @Override
+    public long[] getResponseIdRange(Long surveyId) {
+        List<Object[]> rows = responseRepository.findIdRangeBySurvey(surveyId);
+        Object[] range = rows.isEmpty() ? null : rows.get(0);
+        if (range == null || range[0] == null) {
+            return null;
+        }
+        return new long[] { ((Number) range[0]).longValue(), ((Number) range[1]).longValue() };
+    }
+
+    @Override
+    public String getSurveyDataVersion(Long surveyId) {
+        List<Object[]> rows = surveyRepository.findDataVersionById(surveyId);
+        Object[] version = rows.isEmpty() ? new Object[3] : rows.get(0);
+        Date surveyUpdated = (Date) version[0];
+        Date responsesUpdated = (Date) version[2];
+        return (version[1] == null ? 0 : ((Number) version[1]).longValue())
+                + "-" + (responsesUpdated == null ? 0 : responsesUpdated.getTime())
+                + "-" + (surveyUpdated == null ? 0 : surveyUpdated.getTime());
+    }
+
+    /**
+     * Whether the response counter that marks the survey's summary counters exists, checked with a plain read rather
+     * than a locking update.  Once seen it is remembered, since counters are only ever deleted by a rebuild that
+     * recreates them.
+     */
+    private boolean summaryCountsExist(long surveyId) {
+        if (surveysWithSummaryCounts.contains(surveyId)) {
+            return true;
+        }
+        if (summaryCountRepository.countResponseCountBySurvey(surveyId) == 0) {
+            return false;
+        }
+        surveysWithSummaryCounts.add(surveyId);
+        return true;
+    }
+
+    private List<JpaSurveySummaryCount> rebuildSummaryCounts(Long surveyId) {
+        summaryCountRepository.deleteBySurvey(surveyId);
+
+        List<JpaSurveySummaryCount> counts = new ArrayList<>();
+        counts.add(new JpaSurveySummaryCount(new JpaSurveySummaryCountPK(surveyId,
+                JpaSurveySummaryCount.RESPONSE_COUNT_ID, JpaSurveySummaryCount.RESPONSE_COUNT_ID),
+                countResponsesBySurvey(surveyId)));
+        for (SurveyAnswerCount answerCount : countAnswersBySurvey(surveyId)) {
+            counts.add(new JpaSurveySummaryCount(new JpaSurveySummaryCountPK(surveyId, answerCount.getQuestionId(),
+                    answerCount.getAnswerId()), answerCount.getCount()));
+        }
+
+        for (JpaSurveySummaryCount count : counts) {
+            JpaSurveySummaryCountPK pk = count.getId();
+            if (!insertIfAbsent(SUMMARY_COUNT_INSERT, pk.getSurveyId(), pk.getQuestionId(), pk.getAnswerId(),
+                    count.getCount())) {
+                // Rebuilt by a concurrent transaction since our delete; our counts include our own changes
+                summaryCountRepository.setCount(pk.getSurveyId(), pk.getQuestionId(), pk.getAnswerId(),
+                        count.getCount());
+            }
+        }
+        log.debug("Rebuilt {} summary counters for survey {}", counts.size(), surveyId);
+        return counts;
+    }
+
+    /**
+     * Insert a counter row unless another transaction already has.  The insert runs inside a savepoint so that a
+     * duplicate key only undoes the insert and not the caller's transaction, and goes straight to JDBC because a
+     * failed flush would mark the whole JPA transaction for rollback.
+     * @return true if the row was inserted, false if it could not be (normally because it already exists)
+     */
+    private boolean insertIfAbsent(final String sql, final Object... values) {
+        return entityManager.unwrap(Session.class).doReturningWork(new ReturningWork<Boolean>() {
+            @Override
+            public Boolean execute(Connection connection) throws SQLException {
+                Savepoint savepoint = connection.setSavepoint();
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    for (int i = 0; i < values.length; i++) {
+                        statement.setObject(i + 1, values[i]);
+                    }
+                    statement.executeUpdate();
+                    return true;
+                } catch (SQLException e) {
+                    log.debug("Insert lost to a concurrent transaction; updating instead: {}", e.getMessage());
+                    connection.rollback(savepoint);
+                    return false;
+                }
+            }
+        });
+    }
+
+    private Set<JpaSurveySummaryCountPK> summaryCountKeys(JpaResponse response) {
+        long surveyId = response.getSurvey().getId();
+        Set<JpaSurveySummaryCountPK> keys = new HashSet<>();
+        for (JpaResponseAnswer responseAnswer : response.getJpaResponseAnswers()) {
+            long questionId = responseAnswer.getId().getQuestionId();
+            for (JpaAnswer answer : responseAnswer.getAnswer()) {
+                keys.add(new JpaSurveySummaryCountPK(surveyId, questionId, answer.getId()));
+            }
+        }
+        return keys;
+    }
+
+    private interface RowHandler {
+        void handle(ScrollableResults row);
+    }
 }
@@ -0,0 +1,79 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.jpa;
+
+import org.jasig.portlet.survey.mvc.service.JpaSurveyDataService;
+import java.io.Serializable;
+
+import javax.persistence.Column;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+
+/**
+ * The persistent class for the survey_summary_count database table.
+ * Holds the number of responses to a survey that selected a given answer for a given question.  The counters are
+ * adjusted by delta whenever a response is created or updated so that a survey summary can be read without scanning
+ * the responses.  The row with question and answer ids of {@link #RESPONSE_COUNT_ID} holds the number of responses.
+ *
+ * @since 1.0
+ */
+@Entity
+@Table(name = JpaSurveyDataService.TABLENAME_PREFIX + "SUMMARY_COUNT")
+public class JpaSurveySummaryCount implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Question/answer id used for the per-survey response counter.  Generated ids never take this value.
+     */
+    public static final long RESPONSE_COUNT_ID = 0L;
+
+    @EmbeddedId
+    private JpaSurveySummaryCountPK id;
+
+    @Column(name = "ANSWER_COUNT", nullable = false)
+    private long count;
+
+    public JpaSurveySummaryCount() {}
+
+    public JpaSurveySummaryCount(JpaSurveySummaryCountPK id, long count) {
+        this.id = id;
+        this.count = count;
+    }
+
+    public JpaSurveySummaryCountPK getId() {
+        return id;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public boolean isResponseCount() {
+        return id.getQuestionId() == RESPONSE_COUNT_ID && id.getAnswerId() == RESPONSE_COUNT_ID;
+    }
+
+    public void setId(JpaSurveySummaryCountPK id) {
+        this.id = id;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+}
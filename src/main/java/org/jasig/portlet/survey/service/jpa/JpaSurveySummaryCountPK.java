@@ -0,0 +1,100 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.jpa;
+
+import java.io.Serializable;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+
+/**
+ * The primary key class for the survey_summary_count database table.
+ * Plain id columns are used rather than associations so that counters can be adjusted without loading the survey,
+ * question or answer they refer to.
+ *
+ * @since 1.0
+ */
+@Embeddable
+public class JpaSurveySummaryCountPK implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @Column(name = "SURVEY_ID", nullable = false)
+    private long surveyId;
+
+    @Column(name = "QUESTION_ID", nullable = false)
+    private long questionId;
+
+    @Column(name = "ANSWER_ID", nullable = false)
+    private long answerId;
+
+    public JpaSurveySummaryCountPK() {}
+
+    public JpaSurveySummaryCountPK(long surveyId, long questionId, long answerId) {
+        this.surveyId = surveyId;
+        this.questionId = questionId;
+        this.answerId = answerId;
+    }
+
+    public long getSurveyId() {
+        return surveyId;
+    }
+
+    public long getQuestionId() {
+        return questionId;
+    }
+
+    public long getAnswerId() {
+        return answerId;
+    }
+
+    public void setSurveyId(long surveyId) {
+        this.surveyId = surveyId;
+    }
+
+    public void setQuestionId(long questionId) {
+        this.questionId = questionId;
+    }
+
+    public void setAnswerId(long answerId) {
+        this.answerId = answerId;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof JpaSurveySummaryCountPK)) {
+            return false;
+        }
+        JpaSurveySummaryCountPK castOther = (JpaSurveySummaryCountPK) other;
+        return this.surveyId == castOther.surveyId && this.questionId == castOther.questionId
+                && this.answerId == castOther.answerId;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int hash = 17;
+        hash = hash * prime + ((int) (this.surveyId ^ (this.surveyId >>> 32)));
+        hash = hash * prime + ((int) (this.questionId ^ (this.questionId >>> 32)));
+        hash = hash * prime + ((int) (this.answerId ^ (this.answerId >>> 32)));
+        return hash;
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.jpa;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * Snapshot of a response as it was saved, handed to {@link IResponseSaveListener}s once the save has committed.
+ * Holds ids only, so it stays valid after the persistence context that produced it is closed.
+ *
+ * @since 1.0
+ */
+public class ResponseSaveEvent implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long surveyId;
+    private final long responseId;
+    private final String user;
+    private final Date lastUpdated;
+    private final boolean created;
+    private final Map<Long, Set<Long>> answers;
+
+    public ResponseSaveEvent(JpaResponse response, boolean created) {
+        this.surveyId = response.getSurvey().getId();
+        this.responseId = response.getId();
+        this.user = response.getUser();
+        this.lastUpdated = response.getLastUpdated();
+        this.created = created;
+        Map<Long, Set<Long>> answers = new HashMap<>();
+        for (JpaResponseAnswer responseAnswer : response.getJpaResponseAnswers()) {
+            Set<Long> answerIds = new HashSet<>();
+            for (JpaAnswer answer : responseAnswer.getAnswer()) {
+                answerIds.add(answer.getId());
+            }
+            answers.put(responseAnswer.getId().getQuestionId(), Collections.unmodifiableSet(answerIds));
+        }
+        this.answers = Collections.unmodifiableMap(answers);
+    }
+
+    public long getSurveyId() {
+        return surveyId;
+    }
+
+    public long getResponseId() {
+        return responseId;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public Date getLastUpdated() {
+        return lastUpdated;
+    }
+
+    /**
+     * @return true if the response was created by this save, false if an existing response was updated
+     */
+    public boolean isCreated() {
+        return created;
+    }
+
+    /**
+     * @return the selected answer ids keyed by question id, as of this save
+     */
+    public Map<Long, Set<Long>> getAnswers() {
+        return answers;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
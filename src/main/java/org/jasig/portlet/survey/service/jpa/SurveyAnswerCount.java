@@ -0,0 +1,60 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.jpa;
+
+import java.io.Serializable;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * Number of responses that selected an answer for a question.  Used as the result type of aggregate queries so that
+ * counts can be read without loading responses.
+ *
+ * @since 1.0
+ */
+public class SurveyAnswerCount implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long questionId;
+    private final long answerId;
+    private final long count;
+
+    public SurveyAnswerCount(Long questionId, Long answerId, Long count) {
+        this.questionId = questionId;
+        this.answerId = answerId;
+        this.count = count;
+    }
+
+    public long getQuestionId() {
+        return questionId;
+    }
+
+    public long getAnswerId() {
+        return answerId;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
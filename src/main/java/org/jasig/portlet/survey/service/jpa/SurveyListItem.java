@@ -0,0 +1,81 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.jpa;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.jasig.portlet.survey.PublishedState;
+
+/**
+ * Columns of a survey needed to list it.  Used as the result type of listing queries so that surveys can be listed
+ * without loading their questions and answers.
+ *
+ * @since 1.0
+ */
+public class SurveyListItem implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long id;
+    private final String canonicalName;
+    private final String title;
+    private final String description;
+    private final PublishedState status;
+    private final Date lastUpdateDate;
+
+    public SurveyListItem(Long id, String canonicalName, String title, String description, PublishedState status,
+            Date lastUpdateDate) {
+        this.id = id;
+        this.canonicalName = canonicalName;
+        this.title = title;
+        this.description = description;
+        this.status = status;
+        this.lastUpdateDate = lastUpdateDate;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getCanonicalName() {
+        return canonicalName;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public PublishedState getStatus() {
+        return status;
+    }
+
+    public Date getLastUpdateDate() {
+        return lastUpdateDate;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
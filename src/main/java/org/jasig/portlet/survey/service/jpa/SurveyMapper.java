@@ -22,6 +22,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.lang.Validate;
 import org.dozer.Mapper;
 import org.jasig.portlet.survey.service.dto.*;
 import org.slf4j.Logger;
@@ -68,6 +69,18 @@ class SurveyMapper implements ISurveyMapper {
         });
     }
 
+    @Override
+    public SurveyListItemDTO toSurveyListItem(SurveyListItem item) {
+        SurveyListItemDTO itemDTO = new SurveyListItemDTO();
+        itemDTO.setId(item.getId());
+        itemDTO.setCanonicalName(item.getCanonicalName());
+        itemDTO.setTitle(item.getTitle());
+        itemDTO.setDescription(item.getDescription());
+        itemDTO.setStatus(item.getStatus());
+        itemDTO.setLastUpdateDate(item.getLastUpdateDate());
+        return itemDTO;
+    }
+
     @Override
     public List<QuestionAnswerDTO> toQuestionAnswerList(List<JpaQuestionAnswer> jpaList) {
         return Lists.transform(jpaList, new Function<JpaQuestionAnswer, QuestionAnswerDTO>() {
@@ -139,6 +152,11 @@ class SurveyMapper implements ISurveyMapper {
         return result;
     }
 
+    /**
+     * Questions and answers are resolved from the survey's own definition, which is loaded with the survey, rather
+     * than looked up one at a time.  Questions that are not part of the survey and answers that are not choices of
+     * their question are rejected.
+     */
     @Override
     public JpaResponse toJpaResponse(ResponseDTO response) {
         log.debug(response.toString());
@@ -147,25 +165,86 @@ class SurveyMapper implements ISurveyMapper {
         JpaResponse jpaResponse = new JpaResponse();
         jpaResponse.setId(response.getId());
         jpaResponse.setUser(response.getUser());
-        jpaResponse.setSurvey(jpaSurveyDao.getSurvey(response.getSurvey()));
+        JpaSurvey survey = jpaSurveyDao.getSurvey(response.getSurvey());
+        Validate.notNull(survey, "No survey with id " + response.getSurvey());
+        jpaResponse.setSurvey(survey);
+        Map<Long, JpaQuestion> questions = getQuestionsById(survey);
         // NB:  Not setting lastUpdated b/c it is updated automatically when Hibernate persists
         for (ResponseAnswerDTO responseAnswer : response.getAnswers()) {
-            JpaQuestion jpaQuestion = jpaSurveyDao.getQuestion(responseAnswer.getQuestion());
-            //asset(jpaQuestion);
-            JpaResponseAnswer jpaResponseAnswer = new JpaResponseAnswer();
-            JpaResponseAnswerPK pk = new JpaResponseAnswerPK(jpaResponse, jpaQuestion);
-            jpaResponseAnswer.setId(pk);
-            for (Long answerId : responseAnswer.getAnswer()) {
-                JpaAnswer jpaAnswer = jpaSurveyDao.getAnswer(answerId);
-                //assert(jpaAnswer);
-                jpaResponseAnswer.addJpaAnswer(jpaAnswer);
-            }
-            jpaResponse.addJpaResponseAnswer(jpaResponseAnswer);
+            jpaResponse.addJpaResponseAnswer(toJpaResponseAnswer(jpaResponse, questions, responseAnswer));
         }
         jpaResponse.setFeedback(response.getFeedback());
         return jpaResponse;
     }
 
+    /**
+     * Map the answer to one question of a response, resolving the question and answers from the definition of the
+     * response's survey.  The result is not added to the response.
+     */
+    @Override
+    public JpaResponseAnswer toJpaResponseAnswer(JpaResponse response, ResponseAnswerDTO answer) {
+        log.debug(answer.toString());
+        return toJpaResponseAnswer(response, getQuestionsById(response.getSurvey()), answer);
+    }
+
+    private static JpaResponseAnswer toJpaResponseAnswer(JpaResponse response, Map<Long, JpaQuestion> questions,
+            ResponseAnswerDTO responseAnswer) {
+        JpaQuestion jpaQuestion = questions.get(responseAnswer.getQuestion());
+        Validate.notNull(jpaQuestion, "No question with id " + responseAnswer.getQuestion() + " in survey "
+                + response.getSurvey().getId());
+        Map<Long, JpaAnswer> answers = getAnswersById(jpaQuestion);
+        JpaResponseAnswer jpaResponseAnswer = new JpaResponseAnswer();
+        JpaResponseAnswerPK pk = new JpaResponseAnswerPK(response, jpaQuestion);
+        jpaResponseAnswer.setId(pk);
+        for (Long answerId : responseAnswer.getAnswer()) {
+            JpaAnswer jpaAnswer = answers.get(answerId);
+            Validate.notNull(jpaAnswer, "No answer with id " + answerId + " for question " + jpaQuestion.getId());
+            jpaResponseAnswer.addJpaAnswer(jpaAnswer);
+        }
+        return jpaResponseAnswer;
+    }
+
+    /**
+     * Map the answer to one question of a response, including whether the question allows multiple answers in the
+     * response's survey.
+     */
+    @Override
+    public ResponseAnswerDTO toResponseAnswer(JpaResponse response, JpaResponseAnswer answer) {
+        ResponseAnswerDTO result = new ResponseAnswerDTO();
+        result.setQuestion(answer.getId().getQuestionId());
+        for (JpaSurveyQuestion q : response.getSurvey().getJpaSurveyQuestions()) {
+            if (q.getId().getQuestionId() == answer.getId().getQuestionId()) {
+                result.setMultiple(q.getNumAllowedAnswers() > 1);
+            }
+        }
+        for (JpaAnswer jpaAnswer : answer.getAnswer()) {
+            result.addAnswerId(jpaAnswer.getId());
+        }
+        return result;
+    }
+
+    private static Map<Long, JpaQuestion> getQuestionsById(JpaSurvey survey) {
+        Map<Long, JpaQuestion> questions = new HashMap<>();
+        if (survey.getJpaSurveyQuestions() != null) {
+            for (JpaSurveyQuestion surveyQuestion : survey.getJpaSurveyQuestions()) {
+                JpaQuestion question = surveyQuestion.getId().getJpaQuestion();
+                questions.put(question.getId(), question);
+            }
+        }
+        return questions;
+    }
+
+    private static Map<Long, JpaAnswer> getAnswersById(JpaQuestion question) {
+        Map<Long, JpaAnswer> answers = new HashMap<>();
+        if (question.getJpaQuestionAnswers() != null) {
+            for (JpaQuestionAnswer qa : question.getJpaQuestionAnswers()) {
+                JpaAnswer answer = qa.getId().getJpaAnswer();
+                answers.put(answer.getId(), answer);
+            }
+        }
+        return answers;
+    }
+
     @Override
     public ResponseAnswerDTO toResponseAnswer(JpaResponseAnswer answer) {
         log.debug(answer.toString());
@@ -189,4 +268,33 @@ class SurveyMapper implements ISurveyMapper {
             }
         });
     }
+
+    /**
+     * Build a summary from (question, answer, count) tuples.
+     */
+    @Override
+    public SurveySummaryDTO toSurveySummary(JpaSurvey survey, long responseCount, List<SurveyAnswerCount> counts) {
+        AnswerCountTable table = new AnswerCountTable(counts.size());
+        for (SurveyAnswerCount count : counts) {
+            table.add(count.getQuestionId(), count.getAnswerId(), count.getCount());
+        }
+        return toSurveySummary(survey, responseCount, table);
+    }
+
+    /**
+     * Attach question and answer text from the survey definition to the counts.  Counts for questions or answers no
+     * longer part of the survey are not reported.
+     */
+    @Override
+    public SurveySummaryDTO toSurveySummary(JpaSurvey survey, long responseCount, AnswerCountTable counts) {
+        Map<Long, String> questionText = new HashMap<>();
+        Map<Long, String> answerText = new HashMap<>();
+        for (JpaQuestion question : getQuestionsById(survey).values()) {
+            questionText.put(question.getId(), question.getText());
+            for (JpaAnswer answer : getAnswersById(question).values()) {
+                answerText.put(answer.getId(), answer.getText());
+            }
+        }
+        return new SurveySummaryDTO(responseCount, counts, questionText, answerText);
+    }
 }
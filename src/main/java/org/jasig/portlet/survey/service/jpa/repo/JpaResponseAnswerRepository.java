@@ -18,12 +18,35 @@
  */
 package org.jasig.portlet.survey.service.jpa.repo;
 
+import java.util.List;
+
 import org.jasig.portlet.survey.service.jpa.JpaResponseAnswer;
 import org.jasig.portlet.survey.service.jpa.JpaResponseAnswerPK;
+import org.jasig.portlet.survey.service.jpa.SurveyAnswerCount;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface JpaResponseAnswerRepository extends CrudRepository<JpaResponseAnswer, JpaResponseAnswerPK> {
-    
+    /**
+     * Count the responses that selected each (question, answer) pair of a survey.
+     * @param surveyId
+     * @return one entry per pair selected at least once
+     */
+    @Query("SELECT NEW org.jasig.portlet.survey.service.jpa.SurveyAnswerCount(ra.id.jpaQuestion.id, a.id, COUNT(a.id)) "
+            + "FROM JpaResponseAnswer ra JOIN ra.answer a "
+            + "WHERE ra.id.jpaResponse.survey.id = :surveyId "
+            + "GROUP BY ra.id.jpaQuestion.id, a.id")
+    public List<SurveyAnswerCount> countAnswersBySurvey(@Param("surveyId") Long surveyId);
+
+    /**
+     * Delete the answer of a response to one question.  Its selected answers must already have been removed.
+     */
+    @Modifying
+    @Query("DELETE FROM JpaResponseAnswer ra "
+            + "WHERE ra.id.jpaResponse.id = :responseId AND ra.id.jpaQuestion.id = :questionId")
+    public int deleteByResponseAndQuestion(@Param("responseId") Long responseId, @Param("questionId") Long questionId);
 }
@@ -19,9 +19,13 @@
 package org.jasig.portlet.survey.service.jpa.repo;
 
 import org.jasig.portlet.survey.service.jpa.JpaResponse;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 @Repository
@@ -30,4 +34,26 @@ public interface JpaResponseRepository extends CrudRepository<JpaResponse, Long>
     public List<JpaResponse> findByUser(String user);
     public List<JpaResponse> findByUserAndSurvey(String user, Long surveyId);
     public List<JpaResponse> findBySurvey(Long surveyId);
+
+    @Query("SELECT r.user FROM JpaResponse r WHERE r.id = :id")
+    public List<String> findUserById(@Param("id") Long id);
+
+    @Query("SELECT r.survey.id FROM JpaResponse r WHERE r.id = :id")
+    public List<Long> findSurveyIdById(@Param("id") Long id);
+
+    @Query("SELECT r.id FROM JpaResponse r WHERE r.user = :user AND r.survey.id = :surveyId")
+    public List<Long> findIdByUserAndSurvey(@Param("user") String user, @Param("surveyId") Long surveyId);
+
+    @Query("SELECT r.survey.id, r.user FROM JpaResponse r WHERE r.survey.id IN :surveyIds AND r.user IN :users")
+    public List<Object[]> findSurveyIdAndUserBySurveyInAndUserIn(@Param("surveyIds") Collection<Long> surveyIds,
+            @Param("users") Collection<String> users);
+
+    @Query("SELECT COUNT(r) FROM JpaResponse r WHERE r.survey.id = :surveyId")
+    public long countBySurvey(@Param("surveyId") Long surveyId);
+
+    @Query("SELECT r.lastUpdated FROM JpaResponse r WHERE r.survey.id = :surveyId")
+    public List<Date> findLastUpdatedBySurvey(@Param("surveyId") Long surveyId);
+
+    @Query("SELECT MIN(r.id), MAX(r.id) FROM JpaResponse r WHERE r.survey.id = :surveyId")
+    public List<Object[]> findIdRangeBySurvey(@Param("surveyId") Long surveyId);
 }
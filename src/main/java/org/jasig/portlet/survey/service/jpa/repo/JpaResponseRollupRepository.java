@@ -0,0 +1,63 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.jpa.repo;
+
+import java.util.List;
+
+import org.jasig.portlet.survey.service.jpa.JpaResponseRollup;
+import org.jasig.portlet.survey.service.jpa.JpaResponseRollupPK;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface JpaResponseRollupRepository extends CrudRepository<JpaResponseRollup, JpaResponseRollupPK> {
+    @Query("SELECT r FROM JpaResponseRollup r WHERE r.id.surveyId = :surveyId "
+            + "AND r.id.bucket BETWEEN :fromBucket AND :toBucket ORDER BY r.id.bucket")
+    public List<JpaResponseRollup> findBySurveyAndBuckets(@Param("surveyId") Long surveyId,
+            @Param("fromBucket") Long fromBucket, @Param("toBucket") Long toBucket);
+
+    /**
+     * Adjust a bucket in place.
+     * @return number of rows updated; 0 if the bucket does not exist yet
+     */
+    @Modifying
+    @Query("UPDATE JpaResponseRollup r SET r.count = r.count + :delta "
+            + "WHERE r.id.surveyId = :surveyId AND r.id.bucket = :bucket")
+    public int incrementCount(@Param("surveyId") Long surveyId, @Param("bucket") Long bucket,
+            @Param("delta") Long delta);
+
+    /**
+     * Overwrite a bucket, e.g. with a rebuilt value.
+     * @return number of rows updated; 0 if the bucket does not exist
+     */
+    @Modifying
+    @Query("UPDATE JpaResponseRollup r SET r.count = :count WHERE r.id.surveyId = :surveyId AND r.id.bucket = :bucket")
+    public int setCount(@Param("surveyId") Long surveyId, @Param("bucket") Long bucket, @Param("count") Long count);
+
+    @Query("SELECT COUNT(r) FROM JpaResponseRollup r WHERE r.id.surveyId = :surveyId AND r.id.bucket = "
+            + JpaResponseRollup.TOTAL_BUCKET)
+    public long countTotalBySurvey(@Param("surveyId") Long surveyId);
+
+    @Modifying
+    @Query("DELETE FROM JpaResponseRollup r WHERE r.id.surveyId = :surveyId")
+    public int deleteBySurvey(@Param("surveyId") Long surveyId);
+}
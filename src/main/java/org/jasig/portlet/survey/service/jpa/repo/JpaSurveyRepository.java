@@ -18,8 +18,19 @@
  */
 package org.jasig.portlet.survey.service.jpa.repo;
 
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.jasig.portlet.survey.PublishedState;
 import org.jasig.portlet.survey.service.jpa.JpaSurvey;
+import org.jasig.portlet.survey.service.jpa.JpaSurveySummaryCount;
+import org.jasig.portlet.survey.service.jpa.SurveyListItem;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -30,5 +41,57 @@ public interface JpaSurveyRepository extends CrudRepository<JpaSurvey, Long> {
      * @return
      */
     public JpaSurvey findByCanonicalName(String canonicalName);
-    
+
+    /**
+     * List the surveys after an id without loading their questions.
+     * @param page only its size is used; pages are keyed by id
+     */
+    @Query("SELECT NEW org.jasig.portlet.survey.service.jpa.SurveyListItem("
+            + "s.id, s.canonicalName, s.title, s.description, s.status, s.lastUpdateDate) "
+            + "FROM JpaSurvey s WHERE s.id > :afterId ORDER BY s.id")
+    public List<SurveyListItem> findListItems(@Param("afterId") Long afterId, Pageable page);
+
+    @Query("SELECT NEW org.jasig.portlet.survey.service.jpa.SurveyListItem("
+            + "s.id, s.canonicalName, s.title, s.description, s.status, s.lastUpdateDate) "
+            + "FROM JpaSurvey s WHERE s.id > :afterId AND s.status IN :statuses ORDER BY s.id")
+    public List<SurveyListItem> findListItemsByStatus(@Param("afterId") Long afterId,
+            @Param("statuses") Collection<PublishedState> statuses, Pageable page);
+
+    @Query("SELECT s.lastUpdateDate FROM JpaSurvey s WHERE s.id = :id")
+    public Date findLastUpdateDateById(@Param("id") Long id);
+
+    /**
+     * Read the survey's last update, its response counter and its latest response update in one round trip.  Each is
+     * a primary key or index lookup, so the cost does not grow with the number of responses.
+     */
+    @Query("SELECT s.lastUpdateDate, "
+            + "(SELECT c.count FROM JpaSurveySummaryCount c WHERE c.id.surveyId = s.id "
+            + "AND c.id.questionId = " + JpaSurveySummaryCount.RESPONSE_COUNT_ID
+            + " AND c.id.answerId = " + JpaSurveySummaryCount.RESPONSE_COUNT_ID + "), "
+            + "(SELECT MAX(r.lastUpdated) FROM JpaResponse r WHERE r.survey.id = s.id) "
+            + "FROM JpaSurvey s WHERE s.id = :id")
+    public List<Object[]> findDataVersionById(@Param("id") Long id);
+
+    @Query("SELECT s.lastUpdateDate FROM JpaSurvey s WHERE s.canonicalName = :canonicalName")
+    public Date findLastUpdateDateByCanonicalName(@Param("canonicalName") String canonicalName);
+
+    @Query("SELECT MAX(s.lastUpdateDate) FROM JpaSurvey s")
+    public Date findMaxLastUpdateDate();
+
+    /**
+     * Mark the surveys that include a question as changed.
+     * @return number of surveys updated
+     */
+    @Modifying
+    @Query("UPDATE JpaSurvey s SET s.lastUpdateDate = :date WHERE s.id IN "
+            + "(SELECT sq.id.jpaSurvey.id FROM JpaSurveyQuestion sq WHERE sq.id.jpaQuestion.id = :questionId)")
+    public int updateLastUpdateDateByQuestion(@Param("questionId") Long questionId, @Param("date") Date date);
+
+    /**
+     * Mark the surveys whose text is under a key as changed.
+     * @return number of surveys updated
+     */
+    @Modifying
+    @Query("UPDATE JpaSurvey s SET s.lastUpdateDate = :date WHERE s.textKey = :textKey")
+    public int updateLastUpdateDateByTextKey(@Param("textKey") String textKey, @Param("date") Date date);
 }
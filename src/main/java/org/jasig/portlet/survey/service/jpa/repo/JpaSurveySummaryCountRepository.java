@@ -0,0 +1,64 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.jpa.repo;
+
+import java.util.List;
+
+import org.jasig.portlet.survey.service.jpa.JpaSurveySummaryCount;
+import org.jasig.portlet.survey.service.jpa.JpaSurveySummaryCountPK;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface JpaSurveySummaryCountRepository extends CrudRepository<JpaSurveySummaryCount, JpaSurveySummaryCountPK> {
+    @Query("SELECT c FROM JpaSurveySummaryCount c WHERE c.id.surveyId = :surveyId")
+    public List<JpaSurveySummaryCount> findBySurvey(@Param("surveyId") Long surveyId);
+
+    @Query("SELECT COUNT(c) FROM JpaSurveySummaryCount c WHERE c.id.surveyId = :surveyId "
+            + "AND c.id.questionId = " + JpaSurveySummaryCount.RESPONSE_COUNT_ID
+            + " AND c.id.answerId = " + JpaSurveySummaryCount.RESPONSE_COUNT_ID)
+    public long countResponseCountBySurvey(@Param("surveyId") Long surveyId);
+
+    /**
+     * Adjust a counter in place.
+     * @return number of rows updated; 0 if the counter does not exist yet
+     */
+    @Modifying
+    @Query("UPDATE JpaSurveySummaryCount c SET c.count = c.count + :delta "
+            + "WHERE c.id.surveyId = :surveyId AND c.id.questionId = :questionId AND c.id.answerId = :answerId")
+    public int incrementCount(@Param("surveyId") Long surveyId, @Param("questionId") Long questionId,
+            @Param("answerId") Long answerId, @Param("delta") Long delta);
+
+    /**
+     * Overwrite a counter, e.g. with a rebuilt value.
+     * @return number of rows updated; 0 if the counter does not exist
+     */
+    @Modifying
+    @Query("UPDATE JpaSurveySummaryCount c SET c.count = :count "
+            + "WHERE c.id.surveyId = :surveyId AND c.id.questionId = :questionId AND c.id.answerId = :answerId")
+    public int setCount(@Param("surveyId") Long surveyId, @Param("questionId") Long questionId,
+            @Param("answerId") Long answerId, @Param("count") Long count);
+
+    @Modifying
+    @Query("DELETE FROM JpaSurveySummaryCount c WHERE c.id.surveyId = :surveyId")
+    public int deleteBySurvey(@Param("surveyId") Long surveyId);
+}
@@ -25,8 +25,15 @@ import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface JpaSurveyTextRepository extends CrudRepository<JpaSurveyText, JpaSurveyTextPK> {
     @Query("SELECT st FROM JpaSurveyText st WHERE st.id.key = :key AND st.id.variant = :variant")
     public JpaSurveyText findByKeyAndVariant(@Param("key") String key, @Param("variant") String variant);
+
+    @Query("SELECT st FROM JpaSurveyText st WHERE st.id.key IN :keys AND st.id.variant IN :variants")
+    public List<JpaSurveyText> findByKeysAndVariants(@Param("keys") Collection<String> keys,
+            @Param("variants") Collection<String> variants);
 }
@@ -0,0 +1,49 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.summary;
+
+import java.util.List;
+
+import org.jasig.portlet.survey.service.dto.SurveySummaryDTO;
+import org.jasig.portlet.survey.service.jpa.IJpaSurveyDao;
+import org.jasig.portlet.survey.service.jpa.ISurveyMapper;
+import org.jasig.portlet.survey.service.jpa.JpaSurvey;
+import org.jasig.portlet.survey.service.jpa.SurveyAnswerCount;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Computes the summary with a GROUP BY query over the stored response answers.  No responses are loaded; the database
+ * returns one row per selected (question, answer) pair.
+ *
+ * @since 1.0
+ */
+public class AggregateQuerySummaryStrategy implements ISurveySummaryStrategy {
+    @Autowired
+    private IJpaSurveyDao jpaSurveyDao;
+
+    @Autowired
+    private ISurveyMapper surveyMapper;
+
+    @Override
+    public SurveySummaryDTO getSurveySummary(JpaSurvey survey) {
+        long responseCount = jpaSurveyDao.countResponsesBySurvey(survey.getId());
+        List<SurveyAnswerCount> counts = jpaSurveyDao.countAnswersBySurvey(survey.getId());
+        return surveyMapper.toSurveySummary(survey, responseCount, counts);
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.summary;
+
+import java.util.List;
+
+import org.jasig.portlet.survey.service.dto.AnswerCountTable;
+import org.jasig.portlet.survey.service.dto.SurveySummaryDTO;
+import org.jasig.portlet.survey.service.jpa.IJpaSurveyDao;
+import org.jasig.portlet.survey.service.jpa.ISurveyMapper;
+import org.jasig.portlet.survey.service.jpa.JpaSurvey;
+import org.jasig.portlet.survey.service.jpa.JpaSurveySummaryCount;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Reads the summary from the counters maintained as responses are saved.  Requires a read-write transaction since
+ * counters are built on first use for surveys answered before they existed.
+ *
+ * @since 1.0
+ */
+public class CounterSummaryStrategy implements ISurveySummaryStrategy {
+    @Autowired
+    private IJpaSurveyDao jpaSurveyDao;
+
+    @Autowired
+    private ISurveyMapper surveyMapper;
+
+    @Override
+    public SurveySummaryDTO getSurveySummary(JpaSurvey survey) {
+        List<JpaSurveySummaryCount> counters = jpaSurveyDao.getSummaryCounts(survey.getId());
+        long responseCount = 0;
+        AnswerCountTable counts = new AnswerCountTable(counters.size());
+        for (JpaSurveySummaryCount counter : counters) {
+            if (counter.isResponseCount()) {
+                responseCount = counter.getCount();
+            } else {
+                counts.add(counter.getId().getQuestionId(), counter.getId().getAnswerId(), counter.getCount());
+            }
+        }
+        return surveyMapper.toSurveySummary(survey, responseCount, counts);
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.summary;
+
+import org.jasig.portlet.survey.service.dto.SurveySummaryDTO;
+import org.jasig.portlet.survey.service.jpa.JpaSurvey;
+
+/**
+ * Interface that defines how the response summary of a survey is computed.  Implementations trade off read cost,
+ * write cost and flexibility; the strategy in use is selected in the application context.
+ *
+ * @since 1.0
+ */
+public interface ISurveySummaryStrategy {
+    /**
+     * Compute the summary of all responses to the survey.  Called within a transaction.
+     * @param survey the survey being summarized, never null
+     */
+    public SurveySummaryDTO getSurveySummary(JpaSurvey survey);
+}
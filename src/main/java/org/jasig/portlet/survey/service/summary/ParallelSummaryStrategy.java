@@ -0,0 +1,122 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.summary;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang.Validate;
+import org.jasig.portlet.survey.service.dto.AnswerCountTable;
+import org.jasig.portlet.survey.service.dto.SurveySummaryDTO;
+import org.jasig.portlet.survey.service.jpa.IJpaSurveyDao;
+import org.jasig.portlet.survey.service.jpa.IResponseAnswerHandler;
+import org.jasig.portlet.survey.service.jpa.ISurveyMapper;
+import org.jasig.portlet.survey.service.jpa.JpaSurvey;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Computes the summary by splitting the survey's response id range into partitions that are walked concurrently on a
+ * {@link ForkJoinPool}, each on its own stateless session, and merging the partial counts.  Every concurrent partition
+ * holds a database connection, so parallelism must stay below the size of the connection pool.
+ *
+ * @since 1.0
+ */
+public class ParallelSummaryStrategy implements ISurveySummaryStrategy {
+    private static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * Partitions created per worker thread, so that uneven partitions even out.
+     */
+    private static final int PARTITIONS_PER_THREAD = 4;
+
+    @Autowired
+    private IJpaSurveyDao jpaSurveyDao;
+
+    @Autowired
+    private ISurveyMapper surveyMapper;
+
+    private ForkJoinPool pool = new ForkJoinPool(DEFAULT_PARALLELISM);
+
+    /**
+     * Number of partitions walked concurrently.  Defaults to 4.
+     */
+    public void setParallelism(int parallelism) {
+        Validate.isTrue(parallelism > 0, "Invalid parallelism: " + parallelism);
+        pool.shutdown();
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Override
+    public SurveySummaryDTO getSurveySummary(JpaSurvey survey) {
+        long responseCount = jpaSurveyDao.countResponsesBySurvey(survey.getId());
+        long[] range = jpaSurveyDao.getResponseIdRange(survey.getId());
+        if (range == null) {
+            return surveyMapper.toSurveySummary(survey, responseCount, new AnswerCountTable());
+        }
+        long partitions = (long) pool.getParallelism() * PARTITIONS_PER_THREAD;
+        long partitionSize = Math.max(1, (range[1] - range[0] + 1) / partitions);
+        AnswerCountTable counts = pool.invoke(new PartitionTask(survey.getId(), range[0], range[1], partitionSize));
+        return surveyMapper.toSurveySummary(survey, responseCount, counts);
+    }
+
+    private class PartitionTask extends RecursiveTask<AnswerCountTable> {
+        private static final long serialVersionUID = 1L;
+
+        private final long surveyId;
+        private final long minResponseId;
+        private final long maxResponseId;
+        private final long partitionSize;
+
+        PartitionTask(long surveyId, long minResponseId, long maxResponseId, long partitionSize) {
+            this.surveyId = surveyId;
+            this.minResponseId = minResponseId;
+            this.maxResponseId = maxResponseId;
+            this.partitionSize = partitionSize;
+        }
+
+        @Override
+        protected AnswerCountTable compute() {
+            if (maxResponseId - minResponseId < partitionSize) {
+                final AnswerCountTable counts = new AnswerCountTable();
+                jpaSurveyDao.scrollResponseAnswers(surveyId, minResponseId, maxResponseId,
+                        new IResponseAnswerHandler() {
+                            @Override
+                            public void handle(long responseId, long questionId, long answerId) {
+                                counts.increment(questionId, answerId);
+                            }
+                        });
+                return counts;
+            }
+            long middle = minResponseId + (maxResponseId - minResponseId) / 2;
+            PartitionTask lower = new PartitionTask(surveyId, minResponseId, middle, partitionSize);
+            PartitionTask upper = new PartitionTask(surveyId, middle + 1, maxResponseId, partitionSize);
+            lower.fork();
+            AnswerCountTable counts = upper.compute();
+            counts.addAll(lower.join());
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.summary;
+
+import org.jasig.portlet.survey.service.dto.AnswerCountTable;
+import org.jasig.portlet.survey.service.dto.SurveySummaryDTO;
+import org.jasig.portlet.survey.service.jpa.IJpaSurveyDao;
+import org.jasig.portlet.survey.service.jpa.IResponseAnswerHandler;
+import org.jasig.portlet.survey.service.jpa.ISurveyMapper;
+import org.jasig.portlet.survey.service.jpa.JpaSurvey;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Computes the summary by walking the stored answers through a database cursor, counting as it goes.  Memory use is
+ * bounded by the number of distinct (question, answer) pairs rather than the number of responses.  Intended as the
+ * base for summary logic that cannot be expressed as counters or an aggregate query.
+ *
+ * @since 1.0
+ */
+public class StreamingSummaryStrategy implements ISurveySummaryStrategy {
+    @Autowired
+    private IJpaSurveyDao jpaSurveyDao;
+
+    @Autowired
+    private ISurveyMapper surveyMapper;
+
+    @Override
+    public SurveySummaryDTO getSurveySummary(JpaSurvey survey) {
+        final AnswerCountTable counts = new AnswerCountTable();
+        jpaSurveyDao.scrollResponseAnswers(survey.getId(), new IResponseAnswerHandler() {
+            @Override
+            public void handle(long responseId, long questionId, long answerId) {
+                counts.increment(questionId, answerId);
+            }
+        });
+
+        long responseCount = jpaSurveyDao.countResponsesBySurvey(survey.getId());
+        return surveyMapper.toSurveySummary(survey, responseCount, counts);
+    }
+}
@@ -0,0 +1,217 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.summary;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.jasig.portlet.survey.service.dto.AnswerCountTable;
+
+/**
+ * Bitmap index of the responses to one survey: for every (question, answer) pair, the set of responses that selected
+ * it.  Responses are numbered with dense ordinals in the order they are added so the bitmaps stay compact.
+ * <p>
+ * While the index is being built from the stored answers, saves may already be applied with {@link #update}; the
+ * stored answers read afterwards for those responses are older than the save and are ignored.
+ *
+ * @since 1.0
+ */
+class SurveyAnswerIndex {
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private final Map<Long, Map<Long, BitSet>> bitmaps = new HashMap<>();
+
+    /**
+     * Responses updated while the index is being built; null once it is built.
+     */
+    private Set<Long> updatedWhileBuilding = new HashSet<>();
+
+    /**
+     * Record that a response selected an answer.  Used while building the index.
+     */
+    void add(long responseId, long questionId, long answerId) {
+        lock.writeLock().lock();
+        try {
+            if (updatedWhileBuilding != null && updatedWhileBuilding.contains(responseId)) {
+                return;
+            }
+            bitmap(questionId, answerId).set(ordinalOf(responseId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Mark the end of the build; later calls to {@link #add} are no longer checked against updates.
+     */
+    void built() {
+        lock.writeLock().lock();
+        try {
+            updatedWhileBuilding = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace everything known about a response with its current answers.
+     * @param answers selected answer ids keyed by question id
+     */
+    void update(long responseId, Map<Long, Set<Long>> answers) {
+        lock.writeLock().lock();
+        try {
+            if (updatedWhileBuilding != null) {
+                updatedWhileBuilding.add(responseId);
+            }
+            int ordinal = ordinalOf(responseId);
+            for (Map<Long, BitSet> questionBitmaps : bitmaps.values()) {
+                for (BitSet bitmap : questionBitmaps.values()) {
+                    bitmap.clear(ordinal);
+                }
+            }
+            for (Map.Entry<Long, Set<Long>> question : answers.entrySet()) {
+                for (Long answerId : question.getValue()) {
+                    bitmap(question.getKey(), answerId).set(ordinal);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of responses in the index
+     */
+    int getResponseCount() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Count the responses that selected each pair of row and column answers.
+     * @return counts indexed by position in rowAnswerIds, then position in columnAnswerIds
+     */
+    long[][] crosstab(long rowQuestionId, long[] rowAnswerIds, long columnQuestionId, long[] columnAnswerIds) {
+        long[][] counts = new long[rowAnswerIds.length][columnAnswerIds.length];
+        lock.readLock().lock();
+        try {
+            for (int row = 0; row < rowAnswerIds.length; row++) {
+                BitSet rowBitmap = find(rowQuestionId, rowAnswerIds[row]);
+                if (rowBitmap == null) {
+                    continue;
+                }
+                for (int column = 0; column < columnAnswerIds.length; column++) {
+                    BitSet columnBitmap = find(columnQuestionId, columnAnswerIds[column]);
+                    if (columnBitmap != null) {
+                        counts[row][column] = andCardinality(rowBitmap, columnBitmap);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return counts;
+    }
+
+    /**
+     * Count the answers of the responses that match a filter.  A response matches if, for every question in the
+     * filter, it selected at least one of the listed answers.
+     * @param filter answer ids keyed by question id
+     * @param counts receives the answer counts of the matching responses
+     * @return number of matching responses
+     */
+    long countMatching(Map<Long, Set<Long>> filter, AnswerCountTable counts) {
+        lock.readLock().lock();
+        try {
+            BitSet matching = new BitSet();
+            matching.set(0, ordinals.size());
+            for (Map.Entry<Long, Set<Long>> question : filter.entrySet()) {
+                BitSet selected = new BitSet();
+                for (Long answerId : question.getValue()) {
+                    BitSet bitmap = find(question.getKey(), answerId);
+                    if (bitmap != null) {
+                        selected.or(bitmap);
+                    }
+                }
+                matching.and(selected);
+            }
+            for (Map.Entry<Long, Map<Long, BitSet>> question : bitmaps.entrySet()) {
+                for (Map.Entry<Long, BitSet> answer : question.getValue().entrySet()) {
+                    long count = andCardinality(answer.getValue(), matching);
+                    if (count > 0) {
+                        counts.add(question.getKey(), answer.getKey(), count);
+                    }
+                }
+            }
+            return matching.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet find(long questionId, long answerId) {
+        Map<Long, BitSet> questionBitmaps = bitmaps.get(questionId);
+        return questionBitmaps == null ? null : questionBitmaps.get(answerId);
+    }
+
+    private BitSet bitmap(long questionId, long answerId) {
+        Map<Long, BitSet> questionBitmaps = bitmaps.get(questionId);
+        if (questionBitmaps == null) {
+            questionBitmaps = new HashMap<>();
+            bitmaps.put(questionId, questionBitmaps);
+        }
+        BitSet bitmap = questionBitmaps.get(answerId);
+        if (bitmap == null) {
+            bitmap = new BitSet();
+            questionBitmaps.put(answerId, bitmap);
+        }
+        return bitmap;
+    }
+
+    private int ordinalOf(long responseId) {
+        Integer ordinal = ordinals.get(responseId);
+        if (ordinal == null) {
+            ordinal = ordinals.size();
+            ordinals.put(responseId, ordinal);
+        }
+        return ordinal;
+    }
+
+    /**
+     * Count the bits set in both bitmaps without allocating their intersection.
+     */
+    private static long andCardinality(BitSet a, BitSet b) {
+        long count = 0;
+        for (int i = a.nextSetBit(0); i >= 0; i = a.nextSetBit(i + 1)) {
+            if (b.get(i)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
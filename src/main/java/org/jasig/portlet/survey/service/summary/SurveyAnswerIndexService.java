@@ -0,0 +1,154 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.summary;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.jasig.portlet.survey.service.dto.AnswerCountTable;
+import org.jasig.portlet.survey.service.jpa.IJpaSurveyDao;
+import org.jasig.portlet.survey.service.jpa.IResponseAnswerHandler;
+import org.jasig.portlet.survey.service.jpa.IResponseSaveListener;
+import org.jasig.portlet.survey.service.jpa.ResponseSaveEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * Holds a {@link SurveyAnswerIndex} per survey.  An index is built from the stored answers the first time a survey is
+ * queried and kept current with responses saved through this node.  Indexes expire after a configurable age so that
+ * responses saved through other nodes of a cluster are picked up on the next rebuild.  Saves that commit while an
+ * index is being built are applied to it as well, so they are not lost between the build's read and its completion.
+ *
+ * @since 1.0
+ */
+@Service
+public class SurveyAnswerIndexService implements IResponseSaveListener {
+    @Autowired
+    private IJpaSurveyDao jpaSurveyDao;
+
+    @Value("${survey.answerIndex.maxSurveys:50}")
+    private long maxSurveys;
+
+    @Value("${survey.answerIndex.maxAgeMinutes:10}")
+    private long maxAgeMinutes;
+
+    private LoadingCache<Long, SurveyAnswerIndex> indexes;
+
+    /**
+     * Indexes being built, or built but possibly not yet visible in the cache.
+     */
+    private final ConcurrentMap<Long, SurveyAnswerIndex> building = new ConcurrentHashMap<>();
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    @PostConstruct
+    public void init() {
+        indexes = CacheBuilder.newBuilder()
+                .maximumSize(maxSurveys)
+                .expireAfterWrite(maxAgeMinutes, TimeUnit.MINUTES)
+                .build(new CacheLoader<Long, SurveyAnswerIndex>() {
+                    @Override
+                    public SurveyAnswerIndex load(Long surveyId) {
+                        return buildIndex(surveyId);
+                    }
+                });
+    }
+
+    /**
+     * Count the responses that selected each pair of row and column answers.
+     * @return counts indexed by position in rowAnswerIds, then position in columnAnswerIds
+     */
+    public long[][] crosstab(long surveyId, long rowQuestionId, long[] rowAnswerIds, long columnQuestionId,
+            long[] columnAnswerIds) {
+        return index(surveyId).crosstab(rowQuestionId, rowAnswerIds, columnQuestionId,
+                columnAnswerIds);
+    }
+
+    /**
+     * Count the answers of the survey's responses that match a filter, without loading any response.
+     * @param filter answer ids keyed by question id; a response matches if it selected one of the listed answers for
+     *               every question in the filter
+     * @param counts receives the answer counts of the matching responses
+     * @return number of matching responses
+     */
+    public long countMatching(long surveyId, Map<Long, Set<Long>> filter, AnswerCountTable counts) {
+        return index(surveyId).countMatching(filter, counts);
+    }
+
+    /**
+     * @return number of responses to the survey that have at least one answer
+     */
+    public long getResponseCount(long surveyId) {
+        return index(surveyId).getResponseCount();
+    }
+
+    /**
+     * Apply the saved response to the survey's index if one is loaded or being built; otherwise it is read when the
+     * index is built.
+     */
+    @Override
+    public void responseSaved(ResponseSaveEvent event) {
+        // Checked before the cache: an index leaves this map only once the cache holds it
+        SurveyAnswerIndex buildingIndex = building.get(event.getSurveyId());
+        if (buildingIndex != null) {
+            buildingIndex.update(event.getResponseId(), event.getAnswers());
+        }
+        SurveyAnswerIndex index = indexes.getIfPresent(event.getSurveyId());
+        if (index != null && index != buildingIndex) {
+            index.update(event.getResponseId(), event.getAnswers());
+        }
+    }
+
+    private SurveyAnswerIndex index(long surveyId) {
+        SurveyAnswerIndex index = indexes.getUnchecked(surveyId);
+        building.remove(surveyId, index);
+        return index;
+    }
+
+    private SurveyAnswerIndex buildIndex(long surveyId) {
+        final SurveyAnswerIndex index = new SurveyAnswerIndex();
+        building.put(surveyId, index);
+        try {
+            jpaSurveyDao.scrollResponseAnswers(surveyId, new IResponseAnswerHandler() {
+                @Override
+                public void handle(long responseId, long questionId, long answerId) {
+                    index.add(responseId, questionId, answerId);
+                }
+            });
+        } catch (RuntimeException e) {
+            building.remove(surveyId, index);
+            throw e;
+        }
+        index.built();
+        log.debug("Built answer index of {} responses for survey {}", index.getResponseCount(), surveyId);
+        return index;
+    }
+}
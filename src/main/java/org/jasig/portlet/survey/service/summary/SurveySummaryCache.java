@@ -0,0 +1,148 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.summary;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.jasig.portlet.survey.service.dto.SurveySummaryDTO;
+import org.jasig.portlet.survey.service.jpa.IJpaSurveyDao;
+import org.jasig.portlet.survey.service.jpa.IResponseSaveListener;
+import org.jasig.portlet.survey.service.jpa.ResponseSaveEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
+/**
+ * Holds the last summary built for each survey, tagged with the survey's version.  The local version is bumped after
+ * every committed response save and every change to the survey definition made through this node; callers combine it
+ * with state read from the database (see {@link IJpaSurveyDao#getSurveyDataVersion}) so changes made through other
+ * nodes change the version too.  An entry is only served while its version is current, and entries also expire after
+ * a configurable age.
+ * <p>
+ * The cache is bounded by the total number of answer counter slots held rather than by the number of surveys, since
+ * summaries of large surveys are much bigger than those of small ones.
+ *
+ * @since 1.0
+ */
+@Service
+public class SurveySummaryCache implements IResponseSaveListener {
+    @Value("${survey.summaryCache.maxWeight:200000}")
+    private long maxWeight;
+
+    @Value("${survey.summaryCache.maxAgeSeconds:60}")
+    private long maxAgeSeconds;
+
+    /**
+     * Distinguishes the versions of this node and run from those of earlier runs, whose counters also started at 0.
+     */
+    private final String instance = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final ConcurrentMap<Long, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    private Cache<Long, VersionedSummary> summaries;
+
+    @PostConstruct
+    public void init() {
+        summaries = CacheBuilder.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher(new Weigher<Long, VersionedSummary>() {
+                    @Override
+                    public int weigh(Long surveyId, VersionedSummary entry) {
+                        return entry.summary.getCounts().capacity() + 1;
+                    }
+                })
+                .expireAfterWrite(maxAgeSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * @return opaque version of the survey's summary; changes whenever the summary may have changed through this node
+     */
+    public String getVersion(long surveyId) {
+        return instance + "-" + generation.get() + "-" + getCounter(surveyId).get();
+    }
+
+    /**
+     * @return the cached summary if it was built at the specified version, otherwise null
+     */
+    public SurveySummaryDTO get(long surveyId, String version) {
+        VersionedSummary entry = summaries.getIfPresent(surveyId);
+        return entry != null && entry.version.equals(version) ? entry.summary : null;
+    }
+
+    /**
+     * @param version version read with {@link #getVersion} before the summary was built
+     */
+    public void put(long surveyId, String version, SurveySummaryDTO summary) {
+        summaries.put(surveyId, new VersionedSummary(version, summary));
+    }
+
+    /**
+     * Discard the survey's summary, e.g. after a change to its questions.
+     */
+    public void invalidate(long surveyId) {
+        getCounter(surveyId).incrementAndGet();
+        summaries.invalidate(surveyId);
+    }
+
+    /**
+     * Discard every summary, e.g. after a change to a question that may be part of several surveys.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        summaries.invalidateAll();
+    }
+
+    @Override
+    public void responseSaved(ResponseSaveEvent event) {
+        invalidate(event.getSurveyId());
+    }
+
+    private AtomicLong getCounter(long surveyId) {
+        AtomicLong counter = versions.get(surveyId);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = versions.putIfAbsent(surveyId, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    private static final class VersionedSummary {
+        private final String version;
+        private final SurveySummaryDTO summary;
+
+        private VersionedSummary(String version, SurveySummaryDTO summary) {
+            this.version = version;
+            this.summary = summary;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.summary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.jasig.portlet.survey.service.dto.AnswerCountTable;
+import org.jasig.portlet.survey.service.dto.ApproximateSurveySummaryDTO;
+import org.jasig.portlet.survey.service.dto.SurveySummaryDTO;
+import org.jasig.portlet.survey.service.jpa.IJpaSurveyDao;
+import org.jasig.portlet.survey.service.jpa.IResponseAnswerHandler;
+import org.jasig.portlet.survey.service.jpa.IResponseIdHandler;
+import org.jasig.portlet.survey.service.jpa.ISurveyMapper;
+import org.jasig.portlet.survey.service.jpa.JpaSurvey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Estimates a survey summary from a uniform random sample of its responses.  The sample is drawn by reservoir
+ * sampling over a cursor of response ids, which reads only the narrow survey index, and answers are then read for the
+ * sampled responses alone.  Each count comes with a Wilson score interval, adjusted for sampling without replacement
+ * from a finite number of responses.
+ *
+ * @since 1.0
+ */
+@Service
+public class SurveySummarySampler {
+    public static final double CONFIDENCE_LEVEL = 0.95;
+
+    /**
+     * Standard normal quantile for {@link #CONFIDENCE_LEVEL}.
+     */
+    private static final double Z = 1.959964;
+
+    @Autowired
+    private IJpaSurveyDao jpaSurveyDao;
+
+    @Autowired
+    private ISurveyMapper surveyMapper;
+
+    @Value("${survey.summary.sampleSize:2000}")
+    private int sampleSize;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    public ApproximateSurveySummaryDTO estimate(JpaSurvey survey) {
+        Reservoir reservoir = new Reservoir(sampleSize);
+        jpaSurveyDao.scrollResponseIds(survey.getId(), reservoir);
+        List<Long> sample = reservoir.getSample();
+
+        final AnswerCountTable sampleCounts = new AnswerCountTable();
+        jpaSurveyDao.scrollResponseAnswers(sample, new IResponseAnswerHandler() {
+            @Override
+            public void handle(long responseId, long questionId, long answerId) {
+                sampleCounts.increment(questionId, answerId);
+            }
+        });
+
+        long responseCount = reservoir.getSeen();
+        long n = sample.size();
+        AnswerCountTable estimates = new AnswerCountTable(sampleCounts.size());
+        AnswerCountTable lowerBounds = new AnswerCountTable(sampleCounts.size());
+        AnswerCountTable upperBounds = new AnswerCountTable(sampleCounts.size());
+        for (int slot = 0; slot < sampleCounts.capacity(); slot++) {
+            if (!sampleCounts.isOccupied(slot)) {
+                continue;
+            }
+            long questionId = sampleCounts.questionIdAt(slot);
+            long answerId = sampleCounts.answerIdAt(slot);
+            long count = sampleCounts.countAt(slot);
+            if (n == responseCount) {
+                // Every response was sampled; the counts are exact
+                estimates.add(questionId, answerId, count);
+                lowerBounds.add(questionId, answerId, count);
+                upperBounds.add(questionId, answerId, count);
+                continue;
+            }
+            double p = (double) count / n;
+            double[] interval = wilsonInterval(p, n * (responseCount - 1.0) / (responseCount - n));
+            estimates.add(questionId, answerId, Math.round(p * responseCount));
+            lowerBounds.add(questionId, answerId, (long) Math.floor(interval[0] * responseCount));
+            upperBounds.add(questionId, answerId, (long) Math.ceil(interval[1] * responseCount));
+        }
+        log.debug("Estimated summary of survey {} from {} of {} responses", survey.getId(), n, responseCount);
+
+        SurveySummaryDTO estimate = surveyMapper.toSurveySummary(survey, responseCount, estimates);
+        return new ApproximateSurveySummaryDTO(estimate, n, CONFIDENCE_LEVEL, lowerBounds, upperBounds);
+    }
+
+    /**
+     * @param p sample proportion
+     * @param n effective sample size
+     * @return lower and upper bound of the proportion
+     */
+    private static double[] wilsonInterval(double p, double n) {
+        double z2 = Z * Z;
+        double denominator = 1 + z2 / n;
+        double center = (p + z2 / (2 * n)) / denominator;
+        double halfWidth = Z * Math.sqrt(p * (1 - p) / n + z2 / (4 * n * n)) / denominator;
+        return new double[] { Math.max(0, center - halfWidth), Math.min(1, center + halfWidth) };
+    }
+
+    /**
+     * Keeps a uniform random sample of a fixed number of the response ids handed to it (Vitter's algorithm R).
+     */
+    private static final class Reservoir implements IResponseIdHandler {
+        private final long[] ids;
+        private final Random random = new Random();
+        private long seen = 0;
+
+        private Reservoir(int size) {
+            ids = new long[size];
+        }
+
+        @Override
+        public void handle(long responseId) {
+            if (seen < ids.length) {
+                ids[(int) seen] = responseId;
+            } else {
+                long slot = (long) (random.nextDouble() * (seen + 1));
+                if (slot < ids.length) {
+                    ids[(int) slot] = responseId;
+                }
+            }
+            seen++;
+        }
+
+        private long getSeen() {
+            return seen;
+        }
+
+        private List<Long> getSample() {
+            int size = (int) Math.min(seen, ids.length);
+            List<Long> sample = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                sample.add(ids[i]);
+            }
+            return sample;
+        }
+    }
+}
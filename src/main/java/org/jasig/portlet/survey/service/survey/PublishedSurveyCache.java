@@ -0,0 +1,119 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.survey;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.jasig.portlet.survey.PublishedState;
+import org.jasig.portlet.survey.service.dto.SurveyDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Holds fully built definitions (questions, answers and text) of PUBLISHED surveys by id and by canonical name, so
+ * respondents loading a survey do not touch the database.  Published surveys cannot be updated, but questions can
+ * still be attached to them and their questions and text groups can change, so such changes must invalidate the cache.
+ * <p>
+ * The cached DTOs are shared by every caller and must not be modified.
+ *
+ * @since 1.0
+ */
+@Service
+public class PublishedSurveyCache {
+    @Value("${survey.publishedCache.maxSurveys:100}")
+    private long maxSurveys;
+
+    /**
+     * Bumped by every invalidation so a definition built before it is not cached after it.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private Cache<Long, SurveyDTO> surveysById;
+
+    private Cache<String, SurveyDTO> surveysByName;
+
+    @PostConstruct
+    public void init() {
+        surveysById = CacheBuilder.newBuilder().maximumSize(maxSurveys).build();
+        surveysByName = CacheBuilder.newBuilder().maximumSize(maxSurveys).build();
+    }
+
+    /**
+     * @return opaque version to pass to {@link #put}, read before the definition is built
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    public SurveyDTO get(long surveyId) {
+        return surveysById.getIfPresent(surveyId);
+    }
+
+    public SurveyDTO getByName(String canonicalName) {
+        return surveysByName.getIfPresent(canonicalName);
+    }
+
+    /**
+     * Cache the definition if the survey is PUBLISHED and nothing was invalidated since it was built.
+     * @param generation generation read with {@link #getGeneration} before the definition was built
+     */
+    public void put(long generation, SurveyDTO survey) {
+        if (survey.getStatus() != PublishedState.PUBLISHED) {
+            return;
+        }
+        synchronized (this) {
+            if (this.generation.get() != generation) {
+                return;
+            }
+            surveysById.put(survey.getId(), survey);
+            if (survey.getCanonicalName() != null) {
+                surveysByName.put(survey.getCanonicalName(), survey);
+            }
+        }
+    }
+
+    /**
+     * Discard the survey's definition, e.g. after a question is attached to it.
+     */
+    public synchronized void invalidate(long surveyId) {
+        generation.incrementAndGet();
+        surveysById.invalidate(surveyId);
+        // The entries are evicted independently, so the name entry is looked for even without an id entry
+        for (Iterator<SurveyDTO> surveys = surveysByName.asMap().values().iterator(); surveys.hasNext(); ) {
+            if (surveys.next().getId() == surveyId) {
+                surveys.remove();
+            }
+        }
+    }
+
+    /**
+     * Discard every definition, e.g. after a change to a question or text group that may be part of several surveys.
+     */
+    public synchronized void invalidateAll() {
+        generation.incrementAndGet();
+        surveysById.invalidateAll();
+        surveysByName.invalidateAll();
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.survey;
+
+import java.util.Date;
+
+/**
+ * Validators of a survey resource as sent to clients: a strong entity tag and the last modification date.  Both are
+ * read without mapping the survey, so conditional requests can be answered before any of that work.
+ *
+ * @since 1.0
+ */
+public final class SurveyVersion {
+    private final String eTag;
+    private final Date lastModified;
+
+    /**
+     * @param tag opaque value that changes whenever the representation does; quoted here
+     * @param lastModified time of the last change to the resource
+     */
+    public SurveyVersion(String tag, Date lastModified) {
+        this.eTag = "\"" + tag + "\"";
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * @return quoted entity tag
+     */
+    public String getETag() {
+        return eTag;
+    }
+
+    public Date getLastModified() {
+        return lastModified;
+    }
+}
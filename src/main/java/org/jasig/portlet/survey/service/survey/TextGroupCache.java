@@ -0,0 +1,112 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.survey;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.lang.StringUtils;
+import org.jasig.portlet.survey.service.dto.ITextGroup;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Holds text groups by key and variant chain, as resolved through the chain, including the empty text group of keys that have no text (negative caching),
+ * so text lookups for survey definitions do not query the database each time.  Since text changed through other
+ * portal nodes is not seen, entries also expire after a configurable age.
+ *
+ * @since 1.0
+ */
+@Service
+public class TextGroupCache {
+    private static final char KEY_SEPARATOR = '\n';
+
+    @Value("${survey.textCache.maxEntries:5000}")
+    private long maxEntries;
+
+    @Value("${survey.textCache.maxAgeSeconds:300}")
+    private long maxAgeSeconds;
+
+    /**
+     * Bumped by every invalidation so a text group read before it is not cached after it.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private Cache<String, ITextGroup> textGroups;
+
+    @PostConstruct
+    public void init() {
+        textGroups = CacheBuilder.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(maxAgeSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * @return opaque version to pass to {@link #put}, read before the text group is loaded
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * @return the text group, an empty text group if the key is known to have none, or null if not cached
+     */
+    public ITextGroup get(String key, List<String> variants) {
+        return textGroups.getIfPresent(cacheKey(key, variants));
+    }
+
+    /**
+     * @param generation generation read with {@link #getGeneration} before the text group was loaded
+     * @param textGroup text group the key resolves to through the variant chain; the empty text group if there is none
+     */
+    public synchronized void put(long generation, String key, List<String> variants, ITextGroup textGroup) {
+        if (this.generation.get() == generation) {
+            textGroups.put(cacheKey(key, variants), textGroup);
+        }
+    }
+
+    /**
+     * Drop the key under every variant chain, since a change to any one variant may alter what each chain resolves to.
+     */
+    public synchronized void invalidate(String key) {
+        generation.incrementAndGet();
+        String prefix = key + KEY_SEPARATOR;
+        for (Iterator<String> it = textGroups.asMap().keySet().iterator(); it.hasNext();) {
+            if (it.next().startsWith(prefix)) {
+                it.remove();
+            }
+        }
+    }
+
+    private static String cacheKey(String key, List<String> variants) {
+        StringBuilder cacheKey = new StringBuilder(key);
+        for (String variant : variants) {
+            cacheKey.append(KEY_SEPARATOR).append(StringUtils.trimToEmpty(variant));
+        }
+        return cacheKey.append(KEY_SEPARATOR).toString();
+    }
+}
@@ -0,0 +1,497 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.writebehind;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang.Validate;
+import org.jasig.portlet.survey.mvc.service.ISurveyDataService;
+import org.jasig.portlet.survey.service.dto.QuestionAnswerDTO;
+import org.jasig.portlet.survey.service.dto.ResponseAnswerDTO;
+import org.jasig.portlet.survey.service.dto.ResponseDTO;
+import org.jasig.portlet.survey.service.dto.SurveyDTO;
+import org.jasig.portlet.survey.service.dto.SurveyQuestionDTO;
+import org.jasig.portlet.survey.service.journal.FileJournal;
+import org.jasig.portlet.survey.service.journal.IJournalRecordHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * Optional asynchronous persistence of response submissions.  A submission is validated against the survey definition,
+ * written to a local {@link FileJournal} and forced to disk, and only then acknowledged; a single writer thread drains
+ * the submissions and saves them in groups, one transaction per group.  Submissions acknowledged but not yet saved
+ * when the portlet stops are replayed from the journal on the next start.
+ * <p>
+ * When write-behind is disabled, {@link #submitCreate}, {@link #submitUpdate} and {@link #submitAnswer} return false
+ * and the caller saves the response synchronously.  The queue is bounded; when it is full, submissions wait for room
+ * rather than being saved synchronously, since a synchronous save could be overwritten by an older queued submission
+ * of the same user.
+ * <p>
+ * A submission is only dropped if it can never be saved, i.e. it is invalid or no longer owned by its user.  Any
+ * other failure, e.g. the database being unreachable, is retried with increasing delays, and the journal checkpoint
+ * does not move past the submission until it is saved.
+ * <p>
+ * A submission is saved with its submission time as the response's last update, and is ignored if the stored
+ * response was updated after it.  A replayed submission that was already saved, or that was superseded by a later
+ * save, synchronous or not, therefore never rolls the response back.
+ * <p>
+ * When the journal is retained, its segments are kept after their submissions are saved, as an audit trail of the
+ * submissions accepted for write-behind; synchronous saves are not journaled.  {@link #replay} applies retained
+ * submissions again, e.g. to recover responses lost by a bad migration.
+ *
+ * @since 1.0
+ */
+@Service
+public class ResponseWriteBehindService {
+    @Autowired
+    private ISurveyDataService dataService;
+
+    @Value("${survey.writeBehind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${survey.writeBehind.journalDirectory:}")
+    private String journalDirectory;
+
+    @Value("${survey.writeBehind.queueCapacity:10000}")
+    private int queueCapacity;
+
+    @Value("${survey.writeBehind.groupSize:100}")
+    private int groupSize;
+
+    @Value("${survey.writeBehind.retainJournal:false}")
+    private boolean retainJournal;
+
+    @Value("${survey.writeBehind.submitTimeoutSeconds:30}")
+    private long submitTimeoutSeconds;
+
+    /**
+     * Segment size of the journal.
+     */
+    private static final long SEGMENT_BYTES = 16L * 1024L * 1024L;
+
+    /**
+     * First and longest delay before saving submissions again after a failure.
+     */
+    private static final long MIN_RETRY_MILLIS = 1000L;
+    private static final long MAX_RETRY_MILLIS = 60000L;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final BlockingQueue<PendingRecord> queue = new LinkedBlockingQueue<>();
+
+    private final Object submitLock = new Object();
+
+    private Semaphore permits;
+
+    private FileJournal journal;
+
+    private Thread writer;
+
+    private volatile boolean running;
+
+    /**
+     * Question and answer ids of each survey, used to validate submissions without a database round trip.
+     */
+    private LoadingCache<Long, Map<Long, Set<Long>>> surveyAnswers;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Validate.notEmpty(journalDirectory, "survey.writeBehind.journalDirectory is required for write-behind");
+        permits = new Semaphore(queueCapacity);
+        surveyAnswers = CacheBuilder.newBuilder()
+                .maximumSize(100)
+                .expireAfterWrite(1, TimeUnit.MINUTES)
+                .build(new CacheLoader<Long, Map<Long, Set<Long>>>() {
+                    @Override
+                    public Map<Long, Set<Long>> load(Long surveyId) {
+                        return loadSurveyAnswers(surveyId);
+                    }
+                });
+
+        journal = new FileJournal(new File(journalDirectory), SEGMENT_BYTES, retainJournal);
+        journal.open(new ReplayHandler());
+        if (!queue.isEmpty()) {
+            log.info("Replaying {} response submissions from the write-behind journal", queue.size());
+        }
+
+        running = true;
+        writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }, "survey-response-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException, InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        if (writer.isAlive()) {
+            log.warn("Stopped with {} response submissions pending; they will be replayed on restart", queue.size());
+        }
+        journal.close();
+    }
+
+    /**
+     * Queue every submission still in the journal from the specified sequence number on to be saved again, after
+     * those already queued.
+     * @return number of submissions queued
+     */
+    public int replay(long fromSequence) throws IOException {
+        Validate.isTrue(running, "Write-behind is not enabled");
+        ReplayHandler handler = new ReplayHandler();
+        journal.replay(fromSequence, handler);
+        log.info("Replaying {} response submissions from sequence {} of the write-behind journal", handler.count,
+                fromSequence);
+        return handler.count;
+    }
+
+    /**
+     * Accept a new response for asynchronous creation.
+     * @return false if write-behind is disabled and the response must be created synchronously
+     * @throws IllegalArgumentException if the response does not match the survey definition
+     * @throws IllegalStateException if the queue stayed full or the submission could not be journaled
+     */
+    public boolean submitCreate(ResponseDTO response) {
+        return submit(new WriteBehindRecord(WriteBehindRecord.Operation.CREATE, response));
+    }
+
+    /**
+     * Accept changes to an existing response for asynchronous update.
+     * @return false if write-behind is disabled and the response must be updated synchronously
+     * @throws IllegalArgumentException if the response does not exist or does not match the survey definition
+     * @throws AccessDeniedException if the response is not owned by its user
+     * @throws IllegalStateException if the queue stayed full or the submission could not be journaled
+     */
+    public boolean submitUpdate(ResponseDTO response) {
+        if (!running) {
+            return false;
+        }
+        String owner = dataService.getResponseOwner(response.getId());
+        Validate.notNull(owner, "No response with id " + response.getId());
+        if (!owner.equals(response.getUser())) {
+            throw new AccessDeniedException("Response " + response.getId() + " is not owned by " + response.getUser());
+        }
+        return submit(new WriteBehindRecord(WriteBehindRecord.Operation.UPDATE, response));
+    }
+
+    /**
+     * Accept the answer to one question of an existing response for asynchronous update.
+     * @return false if write-behind is disabled and the answer must be saved synchronously
+     * @throws IllegalArgumentException if the response does not exist or the answer does not match its survey
+     * @throws AccessDeniedException if the response is not owned by the user
+     * @throws IllegalStateException if the queue stayed full or the submission could not be journaled
+     */
+    public boolean submitAnswer(long responseId, String user, ResponseAnswerDTO answer) {
+        if (!running) {
+            return false;
+        }
+        String owner = dataService.getResponseOwner(responseId);
+        Validate.notNull(owner, "No response with id " + responseId);
+        if (!owner.equals(user)) {
+            throw new AccessDeniedException("Response " + responseId + " is not owned by " + user);
+        }
+        ResponseDTO response = new ResponseDTO();
+        response.setId(responseId);
+        response.setUser(user);
+        response.setSurvey(dataService.getResponseSurvey(responseId));
+        response.addAnswer(answer);
+        return submit(new WriteBehindRecord(WriteBehindRecord.Operation.ANSWER, response));
+    }
+
+    private boolean submit(WriteBehindRecord record) {
+        if (!running) {
+            return false;
+        }
+        validate(record.getResponse());
+        try {
+            if (!permits.tryAcquire(submitTimeoutSeconds, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Write-behind queue is full; response submission not accepted");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for room in the write-behind queue", e);
+        }
+        // Submission time, journaled and saved as the last update so older submissions cannot overwrite newer ones
+        record.getResponse().setLastUpdated(new Date());
+        long sequence;
+        try {
+            byte[] payload = record.toBytes();
+            // Keep the queue in journal order so a checkpoint covers every earlier record
+            synchronized (submitLock) {
+                sequence = journal.append(payload);
+                queue.add(new PendingRecord(sequence, record, true));
+            }
+        } catch (IOException e) {
+            permits.release();
+            throw new IllegalStateException("Cannot journal response submission", e);
+        }
+        try {
+            journal.sync(sequence);
+        } catch (IOException e) {
+            // The record is queued and will be saved, but it is not known to be durable so it cannot be acknowledged
+            throw new IllegalStateException("Cannot force response submission " + sequence + " to disk", e);
+        }
+        return true;
+    }
+
+    private void validate(ResponseDTO response) {
+        Validate.notEmpty(response.getUser(), "Response has no user");
+        Map<Long, Set<Long>> answers = surveyAnswers.getUnchecked(response.getSurvey());
+        Validate.isTrue(!answers.isEmpty(), "No survey with id " + response.getSurvey());
+        for (ResponseAnswerDTO responseAnswer : response.getAnswers()) {
+            Set<Long> questionAnswers = answers.get(responseAnswer.getQuestion());
+            Validate.notNull(questionAnswers, "No question with id " + responseAnswer.getQuestion() + " in survey "
+                    + response.getSurvey());
+            for (Long answerId : responseAnswer.getAnswer()) {
+                Validate.isTrue(questionAnswers.contains(answerId), "No answer with id " + answerId
+                        + " for question " + responseAnswer.getQuestion());
+            }
+        }
+    }
+
+    /**
+     * @return answer ids by question id; empty if the survey does not exist
+     */
+    private Map<Long, Set<Long>> loadSurveyAnswers(long surveyId) {
+        Map<Long, Set<Long>> answers = new HashMap<>();
+        SurveyDTO survey = dataService.getSurvey(surveyId);
+        if (survey == null) {
+            return answers;
+        }
+        for (SurveyQuestionDTO surveyQuestion : survey.getSurveyQuestions()) {
+            Set<Long> answerIds = new HashSet<>();
+            if (surveyQuestion.getQuestion().getQuestionAnswers() != null) {
+                for (QuestionAnswerDTO qa : surveyQuestion.getQuestion().getQuestionAnswers()) {
+                    answerIds.add(qa.getAnswer().getId());
+                }
+            }
+            answers.put(surveyQuestion.getQuestion().getId(), answerIds);
+        }
+        return answers;
+    }
+
+    private void drain() {
+        List<PendingRecord> group = new ArrayList<>(groupSize);
+        int saved = 0;
+        long retryMillis = MIN_RETRY_MILLIS;
+        while (running || !queue.isEmpty()) {
+            try {
+                if (group.isEmpty()) {
+                    PendingRecord first = queue.poll(1, TimeUnit.SECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    group.add(first);
+                    queue.drainTo(group, groupSize - 1);
+                    saved = 0;
+                }
+                saved = save(group, saved);
+                if (saved < group.size()) {
+                    // Keep the group, in order, and the checkpoint before it until the database is back
+                    log.warn("Retrying {} unsaved response submissions in {} ms", group.size() - saved, retryMillis);
+                    if (!sleepWhileRunning(retryMillis)) {
+                        log.warn("Stopped with unsaved response submissions; they will be replayed on restart");
+                        return;
+                    }
+                    retryMillis = Math.min(retryMillis * 2, MAX_RETRY_MILLIS);
+                    continue;
+                }
+                retryMillis = MIN_RETRY_MILLIS;
+                // Submissions queued by replay() are older than the checkpoint, which must not move back
+                long checkpoint = journal.getCheckpoint();
+                for (PendingRecord record : group) {
+                    checkpoint = Math.max(checkpoint, record.sequence);
+                }
+                journal.checkpoint(checkpoint);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                log.error("Write-behind writer failed to checkpoint; records will be replayed on restart", e);
+            }
+            releasePermits(group);
+            group.clear();
+        }
+    }
+
+    /**
+     * @return false if the writer was stopped before the delay elapsed
+     */
+    private boolean sleepWhileRunning(long millis) throws InterruptedException {
+        long end = System.currentTimeMillis() + millis;
+        for (long left = millis; left > 0; left = end - System.currentTimeMillis()) {
+            if (!running) {
+                return false;
+            }
+            Thread.sleep(Math.min(left, MIN_RETRY_MILLIS));
+        }
+        return running;
+    }
+
+    private void releasePermits(List<PendingRecord> group) {
+        for (PendingRecord record : group) {
+            if (record.permit) {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * Save the records of a group from the specified index on in one transaction.  If that fails, save them one
+     * transaction each, in order, so a single invalid record does not hold up the rest; invalid records are logged and
+     * dropped.  Saving stops at the first record that fails for any other reason, so that it and the records after it
+     * are retried in order.
+     * @return index of the first record not saved; the size of the group if every record was saved or dropped
+     */
+    private int save(final List<PendingRecord> group, int from) {
+        final List<PendingRecord> pending = group.subList(from, group.size());
+        try {
+            transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+                @Override
+                protected void doInTransactionWithoutResult(TransactionStatus status) {
+                    for (PendingRecord record : pending) {
+                        apply(record.record);
+                    }
+                }
+            });
+            log.debug("Saved {} response submissions", pending.size());
+            return group.size();
+        } catch (RuntimeException e) {
+            log.warn("Group of " + pending.size() + " response submissions failed; saving individually", e);
+        }
+        for (int i = from; i < group.size(); i++) {
+            final PendingRecord record = group.get(i);
+            try {
+                transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+                    @Override
+                    protected void doInTransactionWithoutResult(TransactionStatus status) {
+                        apply(record.record);
+                    }
+                });
+            } catch (RuntimeException e) {
+                if (!isInvalid(e)) {
+                    log.error("Cannot save response submission " + record.sequence + "; will retry", e);
+                    return i;
+                }
+                log.error("Dropping invalid response submission " + record.sequence + ": " + record.record, e);
+            }
+        }
+        return group.size();
+    }
+
+    /**
+     * @return true if the record failed because it can never be saved, rather than because of the database
+     */
+    private static boolean isInvalid(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IllegalArgumentException || cause instanceof AccessDeniedException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void apply(WriteBehindRecord record) {
+        ResponseDTO response = record.getResponse();
+        // Saved as of the submission time, so a submission older than the stored response is ignored
+        if (record.getOperation() == WriteBehindRecord.Operation.ANSWER) {
+            ResponseAnswerDTO answer = response.getAnswers().iterator().next();
+            dataService.saveSubmittedResponseAnswer(response.getId(), response.getUser(), answer,
+                    response.getLastUpdated());
+            return;
+        }
+        dataService.saveSubmittedResponse(response);
+    }
+
+    /**
+     * Queues journaled submissions to be saved.  They were acknowledged before, so they bypass the queue bound.
+     */
+    private final class ReplayHandler implements IJournalRecordHandler {
+        private int count;
+
+        @Override
+        public void handle(long sequence, byte[] payload) {
+            try {
+                queue.add(new PendingRecord(sequence, WriteBehindRecord.fromBytes(payload), false));
+                count++;
+            } catch (IOException | RuntimeException e) {
+                log.error("Skipping unreadable write-behind record " + sequence, e);
+            }
+        }
+    }
+
+    private static final class PendingRecord {
+        private final long sequence;
+        private final WriteBehindRecord record;
+        /**
+         * Whether the record holds a queue permit, i.e. was submitted rather than replayed.
+         */
+        private final boolean permit;
+
+        private PendingRecord(long sequence, WriteBehindRecord record, boolean permit) {
+            this.sequence = sequence;
+            this.record = record;
+            this.permit = permit;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.writebehind;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Set;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.jasig.portlet.survey.service.dto.ResponseAnswerDTO;
+import org.jasig.portlet.survey.service.dto.ResponseDTO;
+
+/**
+ * A response submission waiting in the write-behind journal and queue.  Each record is an event carrying the state
+ * of the questions it covers: the whole response for {@link Operation#CREATE} and {@link Operation#UPDATE}, or a
+ * single question for {@link Operation#ANSWER}.  Applying a record again leaves those questions in the same state,
+ * so the journal can be replayed.
+ * <p>
+ * Records are journaled in a compact binary form: the response, user, survey and submission time, followed by the
+ * answer ids of each question.
+ *
+ * @since 1.0
+ */
+public class WriteBehindRecord implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * First byte of the binary form; identifies the format of the record.
+     */
+    private static final byte FORMAT_VERSION = 1;
+
+    public enum Operation {
+        CREATE,
+        UPDATE,
+        ANSWER
+    }
+
+    private final Operation operation;
+    private final ResponseDTO response;
+
+    public WriteBehindRecord(Operation operation, ResponseDTO response) {
+        this.operation = operation;
+        this.response = response;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public ResponseDTO getResponse() {
+        return response;
+    }
+
+    public byte[] toBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(FORMAT_VERSION);
+        out.writeByte(operation.ordinal());
+        out.writeLong(response.getId());
+        out.writeUTF(response.getUser());
+        out.writeLong(response.getSurvey());
+        out.writeLong(response.getLastUpdated() == null ? 0 : response.getLastUpdated().getTime());
+        writeString(out, response.getFeedback());
+        Set<ResponseAnswerDTO> answers = response.getAnswers();
+        out.writeInt(answers.size());
+        for (ResponseAnswerDTO answer : answers) {
+            out.writeLong(answer.getQuestion());
+            out.writeBoolean(answer.isMultiple());
+            out.writeInt(answer.getAnswer().size());
+            for (Long answerId : answer.getAnswer()) {
+                out.writeLong(answerId);
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    public static WriteBehindRecord fromBytes(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte version = in.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unknown write-behind record format " + version);
+        }
+        Operation operation = Operation.values()[in.readByte()];
+        ResponseDTO response = new ResponseDTO();
+        response.setId(in.readLong());
+        response.setUser(in.readUTF());
+        response.setSurvey(in.readLong());
+        long lastUpdated = in.readLong();
+        response.setLastUpdated(lastUpdated == 0 ? null : new Date(lastUpdated));
+        response.setFeedback(readString(in));
+        for (int i = in.readInt(); i > 0; i--) {
+            ResponseAnswerDTO answer = new ResponseAnswerDTO();
+            answer.setQuestion(in.readLong());
+            answer.setMultiple(in.readBoolean());
+            for (int j = in.readInt(); j > 0; j--) {
+                answer.addAnswerId(in.readLong());
+            }
+            response.addAnswer(answer);
+        }
+        return new WriteBehindRecord(operation, response);
+    }
+
+    /**
+     * Unlike {@link DataOutputStream#writeUTF}, not limited to 64K, since feedback is free text.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
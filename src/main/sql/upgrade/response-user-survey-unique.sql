@@ -0,0 +1,44 @@
+-- Licensed to Apereo under one or more contributor license
+-- agreements. See the NOTICE file distributed with this work
+-- for additional information regarding copyright ownership.
+-- Apereo licenses this file to you under the Apache License,
+-- Version 2.0 (the "License"); you may not use this file
+-- except in compliance with the License.  You may obtain a
+-- copy of the License at the following location:
+--
+--   http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing,
+-- software distributed under the License is distributed on an
+-- "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+-- KIND, either express or implied.  See the License for the
+-- specific language governing permissions and limitations
+-- under the License.
+
+-- Adds the one-response-per-user-and-survey constraint to an existing database.
+--
+-- Schema update (hibernate.hbm2ddl.auto=update) cannot add the constraint while a user has several responses to a
+-- survey: it logs the error and starts without the constraint.  Run this script with the portlet stopped, before
+-- starting the version that declares the constraint.  Of each user's responses to a survey it keeps the most recently
+-- updated one (the highest id on a tie) and deletes the others with their answers.
+
+delete from survey_response_answers
+where response_id in (select r.id from survey_response r where exists (
+    select 1 from survey_response k where k.survey_id = r.survey_id and k.user = r.user
+        and (k.last_updated > r.last_updated or (k.last_updated = r.last_updated and k.id > r.id))));
+
+delete from survey_response_answer
+where response_id in (select r.id from survey_response r where exists (
+    select 1 from survey_response k where k.survey_id = r.survey_id and k.user = r.user
+        and (k.last_updated > r.last_updated or (k.last_updated = r.last_updated and k.id > r.id))));
+
+delete from survey_response
+where id in (select r.id from survey_response r where exists (
+    select 1 from survey_response k where k.survey_id = r.survey_id and k.user = r.user
+        and (k.last_updated > r.last_updated or (k.last_updated = r.last_updated and k.id > r.id))));
+
+-- Summary counters and rollup buckets still count the deleted responses; they are rebuilt on first use
+delete from survey_summary_count;
+delete from survey_response_rollup;
+
+alter table survey_response add constraint survey_response_user_survey_uq unique (user, survey_id);
@@ -62,7 +62,7 @@
                         </a>
                     </div>
                 </div>
-                <survey-question def="(survey.surveyQuestions | orderBy:'sequence')[current.q]" survey="surveyData"></survey-question>
+                <survey-question def="(survey.surveyQuestions | orderBy:'sequence')[current.q]" survey="surveyData" on-answer="saveAnswer(questionId)"></survey-question>
             </div>
             <div class="survey-report"></div>
             <div class="modal-footer">
@@ -71,10 +71,27 @@ window.up.startSurveyApp = function(window, _, params) {
      */
     function register(app) {
 
-        app.controller('surveyController', function($scope, surveyName, user, surveyApiService, $compile) {
+        app.controller('surveyController', function($scope, surveyName, user, surveyApiService, $compile, $timeout) {
+
+            // Times the response is looked up after a submission accepted for write-behind, one second apart per try
+            var RESPONSE_ID_ATTEMPTS = 5;
 
             $scope.surveyData = {feedback: ""};
 
+            // Sent with every attempt to create the response, so repeated clicks or retries create it only once.  A
+            // new key is made whenever the answers change, since the server answers a reused key with its first result
+            var lastSubmission = {};
+            function submissionKeyFor(data) {
+                var body = angular.toJson(data);
+                if (body !== lastSubmission.body) {
+                    lastSubmission = {
+                        body: body,
+                        key: Date.now().toString(36) + '-' + Math.random().toString(36).substr(2)
+                    };
+                }
+                return lastSubmission.key;
+            }
+
             // Load survey and user answers
             surveyApiService.getSurveyByName(surveyName).success(function(response) {
                 console.log(response);
@@ -102,6 +119,14 @@ window.up.startSurveyApp = function(window, _, params) {
                 o.shown = !o.shown;
             };
 
+            // callback to save the answer to one question as it changes, once the response exists
+            $scope.saveAnswer = function(questionId) {
+                if (!$scope.surveyData.id) {
+                    return;
+                }
+                surveyApiService.saveUserAnswer($scope.surveyData.id, questionId, $scope.surveyData[questionId]);
+            };
+
             // callback to save user answers
             $scope.saveAnswers = function(answers, survey) {
                 console.log(answers);
@@ -120,20 +145,53 @@ window.up.startSurveyApp = function(window, _, params) {
                                 .value(),
                     feedback: answers.feedback
                 };
-                surveyApiService.saveUserAnswers(data).success(function(response) {
-                    answers.id = response.id;
+                surveyApiService.saveUserAnswers(data, submissionKeyFor(data)).success(function(response) {
                     $scope.surveyComplete = true;  // Auto-hides the question div
-                    /*
-                     * Use jQuery (rather than AngularJS) to inject the report
-                     * into the DOM so that scripts will be evaluated automatically.
-                     */
-                    $.get('/survey-portlet/v1/surveys/surveyReport/' + answers.id, function(reportContent) {
-                            $compile($('.survey .modal-body .survey-report:visible').html(reportContent))($scope);
-                        }
-                    );
+                    if (response.id) {
+                        answers.id = response.id;
+                    }
+                    if (answers.id) {
+                        showReport(answers.id);
+                    } else {
+                        // A response accepted for write-behind (202) has no id until it is saved; look it up so
+                        // answers are then saved as they change and the next save updates it
+                        loadResponseId(answers, survey, 1);
+                    }
                 });
             }
 
+            function loadResponseId(answers, survey, attempt) {
+                function retry() {
+                    if (attempt < RESPONSE_ID_ATTEMPTS) {
+                        $timeout(function() {
+                            loadResponseId(answers, survey, attempt + 1);
+                        }, 1000 * attempt);
+                    }
+                }
+                surveyApiService.getUserAnswers(user, survey.id).success(function(response) {
+                    if (answers.id) {
+                        return;
+                    }
+                    if (response && response.id) {
+                        answers.id = response.id;
+                        showReport(answers.id);
+                    } else {
+                        retry();
+                    }
+                }).error(retry);
+            }
+
+            function showReport(responseId) {
+                /*
+                 * Use jQuery (rather than AngularJS) to inject the report
+                 * into the DOM so that scripts will be evaluated automatically.
+                 */
+                $.get('/survey-portlet/v1/surveys/surveyReport/' + responseId, function(reportContent) {
+                        $compile($('.survey .modal-body .survey-report:visible').html(reportContent))($scope);
+                    }
+                );
+            }
+
         });
 
         app.factory('surveyApiService', function($http) {
@@ -154,21 +212,32 @@ window.up.startSurveyApp = function(window, _, params) {
                 });
             }
 
-            surveyApi.saveUserAnswers = function(data) {
+            surveyApi.saveUserAnswers = function(data, submissionKey) {
                 var verb = 'POST';
                 var url = '/survey-portlet/v1/surveys/surveyAnswers';
+                var headers = {'Idempotency-Key': submissionKey};
                 if (data.id) {
                     verb = 'PUT';
                     url += '/' + data.id;
+                    headers = {};
                 }
                 console.log(data);
                 return $http({
                     method: verb,
                     url: url,
+                    headers: headers,
                     data: data
                 });
             }
 
+            surveyApi.saveUserAnswer = function(responseId, questionId, answer) {
+                return $http({
+                    method: 'PATCH',
+                    url: '/survey-portlet/v1/surveys/surveyAnswers/' + responseId + '/questions/' + questionId,
+                    data: {question: questionId, answer: answer}
+                });
+            }
+
             return surveyApi;
         });
 
@@ -226,8 +295,8 @@ window.up.startSurveyApp = function(window, _, params) {
                     '<div class="answer" ng-repeat="ans in def.question.questionAnswers | orderBy:\'sequence\'">' +
                     '<label title="{{ans.answer.altText}}" aria-label="{{ans.answer.altText}}" >' +
                     '<img ng-if="ans.answer.imgUrl" ng-src="{{ans.answer.imgUrl}}" height="25px" width="25px"></img>' +
-                    '<input ng-if="def.numAllowedAnswers === 1" type="radio" ng-model="survey[def.question.id]" ng-value="ans.answer.id" />' +
-                    '<input ng-if="def.numAllowedAnswers > 1" type="checkbox" ng-model="survey[def.question.id][ans.answer.id]"/>' +
+                    '<input ng-if="def.numAllowedAnswers === 1" type="radio" ng-model="survey[def.question.id]" ng-value="ans.answer.id" ng-change="onAnswer({questionId: def.question.id})" />' +
+                    '<input ng-if="def.numAllowedAnswers > 1" type="checkbox" ng-model="survey[def.question.id][ans.answer.id]" ng-change="onAnswer({questionId: def.question.id})"/>' +
                     '{{ans.answer.text}}' +
                     '</label>' +
                     '<span class="glyphicon glyphicon-info-sign" ng-if="ans.answer.helpText" title="{{ans.answer.helpText}}"></span>' +
@@ -237,6 +306,7 @@ window.up.startSurveyApp = function(window, _, params) {
                 scope: {
                     def: '=',
                     survey: '=',
+                    onAnswer: '&'
                 },
                 link: function postLink($scope, iEle, iAttrs) {
                 }
@@ -0,0 +1,267 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.mvc.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jasig.portlet.survey.NullVariantStrategy;
+import org.jasig.portlet.survey.PublishedState;
+import org.jasig.portlet.survey.service.dto.ResponseBatchResultDTO;
+import org.jasig.portlet.survey.service.dto.ResponseDTO;
+import org.jasig.portlet.survey.service.dto.SurveyDTO;
+import org.jasig.portlet.survey.service.dto.SurveyQuestionDTO;
+import org.jasig.portlet.survey.service.jpa.IJpaSurveyDao;
+import org.jasig.portlet.survey.service.jpa.ISurveyMapper;
+import org.jasig.portlet.survey.service.jpa.JpaResponse;
+import org.jasig.portlet.survey.service.jpa.JpaSurvey;
+import org.jasig.portlet.survey.service.jpa.JpaSurveyQuestion;
+import org.jasig.portlet.survey.service.survey.PublishedSurveyCache;
+import org.jasig.portlet.survey.service.survey.TextGroupCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Tests of {@link JpaSurveyDataService} against an in-memory DAO that, like a persistence context, returns the
+ * instance merged by an update until the transaction commits.
+ */
+public class JpaSurveyDataServiceTest {
+    private static final long SURVEY_ID = 8L;
+
+    private JpaSurveyDataService dataService;
+
+    /**
+     * Survey as stored in the database.
+     */
+    private JpaSurvey storedSurvey;
+
+    /**
+     * Survey merged in the current transaction, if any.
+     */
+    private JpaSurvey mergedSurvey;
+
+    private int surveyLoads;
+
+    private long nextResponseId = 100L;
+
+    /**
+     * Users with a stored response to the survey.
+     */
+    private Set<String> storedRespondents = new HashSet<>();
+
+    private int respondentLookups;
+
+    @Before
+    public void setUp() {
+        storedSurvey = new JpaSurvey();
+        storedSurvey.setId(SURVEY_ID);
+        storedSurvey.setCanonicalName("surTest");
+        storedSurvey.setStatus(PublishedState.UNPUBLISHED);
+        List<JpaSurveyQuestion> questions = new ArrayList<>();
+        questions.add(new JpaSurveyQuestion());
+        storedSurvey.setJpaSurveyQuestions(questions);
+
+        PublishedSurveyCache publishedSurveys = new PublishedSurveyCache();
+        ReflectionTestUtils.setField(publishedSurveys, "maxSurveys", 10L);
+        publishedSurveys.init();
+        TextGroupCache textGroups = new TextGroupCache();
+        ReflectionTestUtils.setField(textGroups, "maxEntries", 10L);
+        ReflectionTestUtils.setField(textGroups, "maxAgeSeconds", 60L);
+        textGroups.init();
+
+        dataService = new JpaSurveyDataService();
+        ReflectionTestUtils.setField(dataService, "jpaSurveyDao", stub(IJpaSurveyDao.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                switch (method.getName()) {
+                    case "getSurvey":
+                        surveyLoads++;
+                        return mergedSurvey != null ? mergedSurvey : storedSurvey;
+                    case "updateSurvey":
+                        mergedSurvey = (JpaSurvey) args[0];
+                        return mergedSurvey;
+                    case "getResponseIdByUserAndSurvey":
+                        return null;
+                    case "getRespondents":
+                        respondentLookups++;
+                        Map<Long, Set<String>> respondents = new HashMap<>();
+                        respondents.put(SURVEY_ID, new HashSet<>(storedRespondents));
+                        return respondents;
+                    case "createResponses":
+                        @SuppressWarnings("unchecked")
+                        List<JpaResponse> responses = (List<JpaResponse>) args[0];
+                        for (JpaResponse response : responses) {
+                            response.setId(nextResponseId++);
+                        }
+                        return responses;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            }
+        }));
+        ReflectionTestUtils.setField(dataService, "surveyMapper", stub(ISurveyMapper.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                switch (method.getName()) {
+                    case "toSurvey":
+                        return toSurvey((JpaSurvey) args[0]);
+                    case "toJpaSurvey":
+                        return toJpaSurvey((SurveyDTO) args[0]);
+                    case "toJpaResponse":
+                        return toJpaResponse((ResponseDTO) args[0]);
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            }
+        }));
+        ReflectionTestUtils.setField(dataService, "variantStrategy", new NullVariantStrategy());
+        ReflectionTestUtils.setField(dataService, "publishedSurveys", publishedSurveys);
+        ReflectionTestUtils.setField(dataService, "textGroups", textGroups);
+    }
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void publishedSurveyIsReadWithItsQuestionsThroughTheCache() {
+        SurveyDTO update = toSurvey(storedSurvey);
+        update.setStatus(PublishedState.PUBLISHED);
+
+        TransactionSynchronizationManager.initSynchronization();
+        dataService.updateSurvey(update);
+        commit();
+
+        SurveyDTO published = dataService.getSurvey(SURVEY_ID);
+        assertNotNull(published);
+        assertEquals(PublishedState.PUBLISHED, published.getStatus());
+        assertEquals(1, published.getSurveyQuestions().size());
+
+        int loads = surveyLoads;
+        SurveyDTO cached = dataService.getSurvey(SURVEY_ID);
+        assertEquals("Second read should be served from the cache", loads, surveyLoads);
+        assertEquals(1, cached.getSurveyQuestions().size());
+    }
+
+    @Test
+    public void incompleteResponsesAreRejectedWithoutFailingTheBatch() {
+        ResponseDTO noSurvey = new ResponseDTO();
+        noSurvey.setUser("student1");
+        ResponseDTO valid = new ResponseDTO();
+        valid.setUser("student2");
+        valid.setSurvey(SURVEY_ID);
+
+        List<ResponseBatchResultDTO> results = dataService.createResponses(Arrays.asList(null, noSurvey, valid));
+
+        assertEquals(3, results.size());
+        assertEquals(ResponseBatchResultDTO.REJECTED, results.get(0).getStatus());
+        assertEquals(ResponseBatchResultDTO.REJECTED, results.get(1).getStatus());
+        assertEquals("Response has no survey", results.get(1).getMessage());
+        assertEquals(ResponseBatchResultDTO.CREATED, results.get(2).getStatus());
+        assertNotNull(results.get(2).getResponseId());
+    }
+
+    @Test
+    public void repeatedRespondentsAreRejectedWithOneLookupPerChunk() {
+        storedRespondents.add("student1");
+        List<ResponseDTO> responses = new ArrayList<>();
+        for (String user : new String[] {"student1", "student2", "student2", "student3"}) {
+            ResponseDTO response = new ResponseDTO();
+            response.setUser(user);
+            response.setSurvey(SURVEY_ID);
+            responses.add(response);
+        }
+
+        List<ResponseBatchResultDTO> results = dataService.createResponses(responses);
+
+        assertEquals(1, respondentLookups);
+        assertEquals(ResponseBatchResultDTO.REJECTED, results.get(0).getStatus());
+        assertEquals(ResponseBatchResultDTO.CREATED, results.get(1).getStatus());
+        assertEquals(ResponseBatchResultDTO.REJECTED, results.get(2).getStatus());
+        assertEquals(ResponseBatchResultDTO.CREATED, results.get(3).getStatus());
+    }
+
+    /**
+     * Write the merged survey to the "database" and run the after-commit callbacks.
+     */
+    private void commit() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        storedSurvey.setStatus(mergedSurvey.getStatus());
+        mergedSurvey = null;
+        for (TransactionSynchronization synchronization : synchronizations) {
+            synchronization.afterCommit();
+        }
+    }
+
+    private static SurveyDTO toSurvey(JpaSurvey jpaSurvey) {
+        SurveyDTO survey = new SurveyDTO();
+        survey.setId(jpaSurvey.getId());
+        survey.setCanonicalName(jpaSurvey.getCanonicalName());
+        survey.setStatus(jpaSurvey.getStatus());
+        if (jpaSurvey.getJpaSurveyQuestions() != null) {
+            Set<SurveyQuestionDTO> questions = new HashSet<>();
+            for (int i = 0; i < jpaSurvey.getJpaSurveyQuestions().size(); i++) {
+                questions.add(new SurveyQuestionDTO());
+            }
+            survey.setSurveyQuestions(questions);
+        } else {
+            survey.setSurveyQuestions(Collections.<SurveyQuestionDTO>emptySet());
+        }
+        return survey;
+    }
+
+    private static JpaSurvey toJpaSurvey(SurveyDTO survey) {
+        JpaSurvey jpaSurvey = new JpaSurvey();
+        jpaSurvey.setId(survey.getId());
+        jpaSurvey.setCanonicalName(survey.getCanonicalName());
+        jpaSurvey.setStatus(survey.getStatus());
+        return jpaSurvey;
+    }
+
+    private JpaResponse toJpaResponse(ResponseDTO response) {
+        JpaResponse jpaResponse = new JpaResponse();
+        jpaResponse.setUser(response.getUser());
+        jpaResponse.setSurvey(storedSurvey);
+        return jpaResponse;
+    }
+
+    private static <T> T stub(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler));
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.journal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of {@link FileJournal} against a temporary directory, reopening the journal to replay what it wrote.
+ */
+public class FileJournalTest {
+
+    /**
+     * Header written before each payload: length, sequence number and CRC.
+     */
+    private static final int HEADER_BYTES = 20;
+
+    /**
+     * A segment holds two records of {@link #payload}, which is 9 bytes long.
+     */
+    private static final long SMALL_SEGMENT_BYTES = 2 * (HEADER_BYTES + 9);
+
+    private static final long LARGE_SEGMENT_BYTES = 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = folder.newFolder("journal");
+    }
+
+    @Test
+    public void recordsAfterTheCheckpointAreReplayedAcrossSegments() throws IOException {
+        FileJournal journal = open(SMALL_SEGMENT_BYTES, false, new Records());
+        long last = 0;
+        for (int i = 1; i <= 10; i++) {
+            last = journal.append(payload(i));
+            assertEquals(i, last);
+        }
+        journal.sync(last);
+        int segments = segments().length;
+        journal.checkpoint(4);
+        assertEquals("Segments holding only checkpointed records should be deleted", segments - 2, segments().length);
+        journal.close();
+
+        Records replayed = new Records();
+        journal = open(SMALL_SEGMENT_BYTES, false, replayed);
+        replayed.assertSequences(5, 10);
+        assertEquals(4, journal.getCheckpoint());
+        assertEquals(11, journal.append(payload(11)));
+        journal.close();
+    }
+
+    @Test
+    public void retainedSegmentsAreReplayedFromAnySequence() throws IOException {
+        FileJournal journal = open(SMALL_SEGMENT_BYTES, true, new Records());
+        for (int i = 1; i <= 10; i++) {
+            journal.append(payload(i));
+        }
+        journal.checkpoint(10);
+
+        Records replayed = new Records();
+        journal.replay(3, replayed);
+        replayed.assertSequences(3, 10);
+        journal.close();
+
+        Records reopened = new Records();
+        open(SMALL_SEGMENT_BYTES, true, reopened).close();
+        assertTrue("Checkpointed records should not be replayed on open", reopened.sequences.isEmpty());
+    }
+
+    @Test
+    public void tornLastRecordIsDropped() throws IOException {
+        FileJournal journal = open(LARGE_SEGMENT_BYTES, false, new Records());
+        for (int i = 1; i <= 3; i++) {
+            journal.sync(journal.append(payload(i)));
+        }
+        journal.close();
+        File segment = segments()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        Records replayed = new Records();
+        journal = open(LARGE_SEGMENT_BYTES, false, replayed);
+        replayed.assertSequences(1, 2);
+        assertEquals("The torn record's sequence number should be reused", 3, journal.append(payload(3)));
+        journal.close();
+
+        replayed = new Records();
+        open(LARGE_SEGMENT_BYTES, false, replayed).close();
+        replayed.assertSequences(1, 3);
+    }
+
+    @Test
+    public void replayStopsAtARecordWithABadCrc() throws IOException {
+        FileJournal journal = open(LARGE_SEGMENT_BYTES, false, new Records());
+        for (int i = 1; i <= 3; i++) {
+            journal.append(payload(i));
+        }
+        journal.close();
+        // First payload byte of the second record
+        long offset = HEADER_BYTES + payload(1).length + HEADER_BYTES;
+        try (RandomAccessFile file = new RandomAccessFile(segments()[0], "rw")) {
+            file.seek(offset);
+            byte b = file.readByte();
+            file.seek(offset);
+            file.writeByte(b ^ 0xFF);
+        }
+
+        Records replayed = new Records();
+        open(LARGE_SEGMENT_BYTES, false, replayed).close();
+        replayed.assertSequences(1, 1);
+    }
+
+    private FileJournal open(long segmentBytes, boolean retainSegments, IJournalRecordHandler handler)
+            throws IOException {
+        FileJournal journal = new FileJournal(directory, segmentBytes, retainSegments);
+        journal.open(handler);
+        return journal;
+    }
+
+    /**
+     * @return segments holding records, in order
+     */
+    private File[] segments() {
+        File[] segments = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.getName().endsWith(".log") && file.length() > 0;
+            }
+        });
+        Arrays.sort(segments);
+        return segments;
+    }
+
+    private static byte[] payload(int i) {
+        return String.format("record-%02d", i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Collects replayed records.
+     */
+    private static final class Records implements IJournalRecordHandler {
+        private final List<Long> sequences = new ArrayList<>();
+        private final List<byte[]> payloads = new ArrayList<>();
+
+        @Override
+        public void handle(long sequence, byte[] payload) {
+            sequences.add(sequence);
+            payloads.add(payload);
+        }
+
+        /**
+         * Assert that exactly the records from first to last, inclusive, were replayed in order.
+         */
+        void assertSequences(int first, int last) {
+            assertEquals(last - first + 1, sequences.size());
+            for (int i = first; i <= last; i++) {
+                assertEquals(i, (long) sequences.get(i - first));
+                assertArrayEquals(payload(i), payloads.get(i - first));
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.portlet.survey.service.writebehind;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.Date;
+
+import org.jasig.portlet.survey.service.dto.ResponseAnswerDTO;
+import org.jasig.portlet.survey.service.dto.ResponseDTO;
+import org.junit.Test;
+
+/**
+ * Tests of the binary form of {@link WriteBehindRecord}.
+ */
+public class WriteBehindRecordTest {
+
+    @Test
+    public void responseSurvivesARoundTrip() throws IOException {
+        ResponseDTO response = new ResponseDTO();
+        response.setId(223);
+        response.setUser("student");
+        response.setSurvey(8);
+        response.setLastUpdated(new Date(1436282602016L));
+        // Longer than writeUTF allows, with characters outside ASCII
+        StringBuilder feedback = new StringBuilder();
+        while (feedback.length() < 70000) {
+            feedback.append("Tr\u00e8s bien ");
+        }
+        response.setFeedback(feedback.toString());
+        response.addAnswer(answer(18L, false, 303L));
+        response.addAnswer(answer(19L, true, 310L, 311L));
+        response.addAnswer(answer(20L, false));
+
+        WriteBehindRecord copy = WriteBehindRecord.fromBytes(
+                new WriteBehindRecord(WriteBehindRecord.Operation.UPDATE, response).toBytes());
+
+        assertEquals(WriteBehindRecord.Operation.UPDATE, copy.getOperation());
+        assertEquals(response, copy.getResponse());
+    }
+
+    @Test
+    public void newAnswerWithoutFeedbackOrTimeSurvivesARoundTrip() throws IOException {
+        ResponseDTO response = new ResponseDTO();
+        response.setUser("student");
+        response.setSurvey(8);
+        response.addAnswer(answer(18L, false, 302L));
+
+        WriteBehindRecord copy = WriteBehindRecord.fromBytes(
+                new WriteBehindRecord(WriteBehindRecord.Operation.ANSWER, response).toBytes());
+
+        assertEquals(WriteBehindRecord.Operation.ANSWER, copy.getOperation());
+        assertNull(copy.getResponse().getFeedback());
+        assertNull(copy.getResponse().getLastUpdated());
+        assertEquals(response, copy.getResponse());
+    }
+
+    @Test(expected = IOException.class)
+    public void unknownFormatIsRefused() throws IOException {
+        WriteBehindRecord.fromBytes(new byte[] {'{', '}'});
+    }
+
+    private static ResponseAnswerDTO answer(Long question, boolean multiple, Long... answerIds) {
+        ResponseAnswerDTO answer = new ResponseAnswerDTO();
+        answer.setQuestion(question);
+        answer.setMultiple(multiple);
+        for (Long answerId : answerIds) {
+            answer.addAnswerId(answerId);
+        }
+        return answer;
+    }
+}
@@ -1,5 +1,7 @@
 'use strict';
 
+// The portal provides jQuery; the report it loads is not under test
+window.up.jQuery = window.up.jQuery || {get: function() {}};
 window.up.startSurveyApp(window, _, {n: 'test', surveyName: 'surTest'});
 
 describe('SurveyApp', function() {
@@ -149,4 +151,50 @@ describe('SurveyApp', function() {
 
         $httpBackend.flush();
     }));
+
+    it('should reuse the idempotency key only while the answers are unchanged', inject(function($httpBackend) {
+        var keys = [];
+        function captureKey(headers) {
+            keys.push(headers['Idempotency-Key']);
+            return true;
+        }
+        var url = '/survey-portlet/v1/surveys/surveyAnswers';
+        $httpBackend.when('GET', url + '?survey=8').respond(200, '');
+        $httpBackend.expect('POST', url, undefined, captureKey).respond(202, '{}');
+        $httpBackend.expect('POST', url, undefined, captureKey).respond(202, '{}');
+        $httpBackend.expect('POST', url, undefined, captureKey).respond(202, '{}');
+
+        $scope.saveAnswers({18: [302]}, surveyTest);
+        $scope.saveAnswers({18: [302]}, surveyTest);
+        $scope.saveAnswers({18: [303]}, surveyTest);
+        $httpBackend.flush();
+
+        expect(keys[0]).toBeTruthy();
+        expect(keys[1]).toEqual(keys[0]);
+        expect(keys[2]).not.toEqual(keys[0]);
+    }));
+
+    it('should look up the response id after a submission accepted for write-behind',
+            inject(function($httpBackend, $timeout) {
+        var url = '/survey-portlet/v1/surveys/surveyAnswers';
+        var answers = {18: [302]};
+        $httpBackend.expect('POST', url).respond(202, '{}');
+        // Not saved yet on the first lookup
+        $httpBackend.expect('GET', url + '?survey=8').respond(200, '');
+
+        $scope.saveAnswers(answers, surveyTest);
+        $httpBackend.flush();
+        expect(answers.id).toBeUndefined();
+
+        $httpBackend.expect('GET', url + '?survey=8').respond(200, JSON.stringify(surveyAnswers));
+        $timeout.flush();
+        $httpBackend.flush();
+        expect(answers.id).toEqual(223);
+
+        // Saved again as an update of that response
+        $httpBackend.expect('PUT', url + '/223').respond(200, JSON.stringify(surveyAnswers));
+        $scope.saveAnswers(answers, surveyTest);
+        $httpBackend.flush();
+        $httpBackend.verifyNoOutstandingExpectation();
+    }));
 })
\ No newline at end of file